@@ -10,9 +10,11 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
 import io.sensable.SensableService;
+import io.sensable.client.network.RequestDispatcher;
+import io.sensable.client.network.RequestScope;
+import io.sensable.client.network.StartupOrchestrator;
 import io.sensable.model.Statistics;
 import retrofit.Callback;
-import retrofit.RestAdapter;
 import retrofit.RetrofitError;
 import retrofit.client.Response;
 
@@ -23,6 +25,7 @@ public class AboutActivity extends Activity {
     private static final String TAG = AboutActivity.class.getSimpleName();
 
     private TextView statistics;
+    private RequestScope requestScope;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -36,8 +39,27 @@ public class AboutActivity extends Activity {
         Spanned result = Html.fromHtml(formattedText);
         view.setText(result);
 
-        loadStatistics();
+    }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        requestScope = new RequestScope(RequestDispatcher.Priority.INTERACTIVE);
+        Statistics prefetched = StartupOrchestrator.getInstance(this).getStatistics();
+        if (prefetched != null) {
+            showStatistics(prefetched);
+        } else {
+            loadStatistics();
+        }
+    }
+
+    /**
+     * cancels the statistics request if it is still running when the screen is left.
+     */
+    @Override
+    protected void onStop() {
+        requestScope.cancel();
+        super.onStop();
     }
 
     /**
@@ -45,12 +67,7 @@ public class AboutActivity extends Activity {
      * count.
      */
     private void loadStatistics() {
-        RestAdapter restAdapter = new RestAdapter.Builder()
-                .setLogLevel(RestAdapter.LogLevel.FULL)
-                .setEndpoint("http://sensable.io")
-                .build();
-
-        SensableService service = restAdapter.create(SensableService.class);
+        SensableService service = requestScope.getService();
 
         service.getStatistics(new Callback<Statistics>() {
             /**
@@ -78,8 +95,7 @@ public class AboutActivity extends Activity {
             @Override
             public void success(Statistics statisticsResponse, Response response) {
                 Log.d(TAG, "Statistics callback Success: " + statisticsResponse.getCount());
-
-                statistics.setText(NumberFormat.getInstance().format(statisticsResponse.getCount()) + " samples on sensable.io");
+                showStatistics(statisticsResponse);
             }
 
             /**
@@ -101,6 +117,10 @@ public class AboutActivity extends Activity {
         });
     }
 
+    private void showStatistics(Statistics statisticsResponse) {
+        statistics.setText(NumberFormat.getInstance().format(statisticsResponse.getCount()) + " samples on sensable.io");
+    }
+
 }
 
 
@@ -4,7 +4,6 @@ import android.app.Dialog;
 import android.app.DialogFragment;
 import android.content.ContentValues;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.hardware.Sensor;
 import android.hardware.SensorManager;
 import android.location.Location;
@@ -17,7 +16,10 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.*;
 import io.sensable.SensableService;
+import io.sensable.client.network.RequestDispatcher;
+import io.sensable.client.network.SensableClient;
 import io.sensable.client.scheduler.ScheduleHelper;
+import io.sensable.client.settings.Config;
 import io.sensable.client.sqlite.SavedSensablesTable;
 import io.sensable.client.sqlite.SensableContentProvider;
 import io.sensable.model.Sample;
@@ -25,7 +27,6 @@ import io.sensable.model.SampleResponse;
 import io.sensable.model.ScheduledSensable;
 import io.sensable.model.Sensable;
 import retrofit.Callback;
-import retrofit.RestAdapter;
 import retrofit.RetrofitError;
 import retrofit.client.Response;
 
@@ -46,6 +47,10 @@ public class CreateSensableFragment extends DialogFragment {
     private List<Sensor> sensorList;
     private Spinner sensorSpinner;
     private EditText sensableId;
+    private EditText interval;
+    private EditText tolerance;
+    private Spinner uploadModeSpinner;
+    private EditText maxStaleness;
     private Button submitButton;
     private CreateSensableListener createSensableListener;
 
@@ -145,6 +150,22 @@ public class CreateSensableFragment extends DialogFragment {
 
         sensableId = (EditText) view.findViewById(R.id.create_sensable_id);
 
+        interval = (EditText) view.findViewById(R.id.create_sensable_interval);
+        tolerance = (EditText) view.findViewById(R.id.create_sensable_tolerance);
+        maxStaleness = (EditText) view.findViewById(R.id.create_sensable_max_staleness);
+        uploadModeSpinner = (Spinner) view.findViewById(R.id.create_sensable_upload_mode);
+        uploadModeSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                // Only deferred uploads are held back, so only they have a delay
+                maxStaleness.setEnabled(position == ScheduledSensable.UPLOAD_DEFERRED);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
         ArrayAdapter<String> spinnerArrayAdapter = new ArrayAdapter<String>(getActivity(), android.R.layout.simple_spinner_item, listSensorType);
         spinnerArrayAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         sensorSpinner.setAdapter(spinnerArrayAdapter);
@@ -238,6 +259,16 @@ public class CreateSensableFragment extends DialogFragment {
                     scheduledSensable.setSensortype(sensorSpinner.getSelectedItem().toString());
                     scheduledSensable.setUnit(SensorHelper.determineUnit(sensorId));
                     scheduledSensable.setPending(0);
+                    if (SensorHelper.isSlowlyChanging(sensorId)) {
+                        scheduledSensable.setDeadbandRelative(Config.DEFAULT_DEADBAND_RELATIVE);
+                        scheduledSensable.setHeartbeatMillis(Config.DEFAULT_HEARTBEAT_MILLIS);
+                    }
+                    scheduledSensable.setIntervalMillis(getMinutesMillis(interval));
+                    scheduledSensable.setToleranceMillis(getMinutesMillis(tolerance));
+                    scheduledSensable.setUploadClass(uploadModeSpinner.getSelectedItemPosition());
+                    if (scheduledSensable.getUploadClass() == ScheduledSensable.UPLOAD_DEFERRED) {
+                        scheduledSensable.setMaxStalenessMillis(getMaxStalenessMillis());
+                    }
 
                     Location lastKnownLocation = getLocation();
 
@@ -251,12 +282,7 @@ public class CreateSensableFragment extends DialogFragment {
                     sensable.setSamples(new Sample[]{});
                     sensable.setAccessToken(getUserAccessToken());
 
-                    RestAdapter restAdapter = new RestAdapter.Builder()
-                            .setLogLevel(RestAdapter.LogLevel.FULL)
-                            .setEndpoint("http://sensable.io")
-                            .build();
-
-                    SensableService service = restAdapter.create(SensableService.class);
+                    SensableService service = SensableClient.getInstance().getService(RequestDispatcher.Priority.INTERACTIVE);
 
                     service.createSensable(sensable, new Callback<SampleResponse>() {
                         /**
@@ -337,47 +363,41 @@ public class CreateSensableFragment extends DialogFragment {
     }
 
     /**
-     * retrieves and returns an access token for a user based on their saved login
-     * credentials. If the user is logged in, it checks if they have an access token saved
-     * and returns it, otherwise it returns an empty string.
-     * 
-     * @returns a non-empty access token for a user who has been authenticated and has
-     * an access token saved in the application's shared preferences.
-     * 
-     * 	- `accessToken`: This is the access token retrieved from the shared preferences
-     * file. It is a string variable that contains the access token for the user.
-     * 	- `loggedIn`: This is a boolean variable that indicates whether the user is logged
-     * in or not. If the user is logged in, the `accessToken` variable will be non-empty.
-     * 	- `username`: This is the username of the user retrieved from the shared preferences
-     * file. It is also a string variable.
-     * 
-     * The function first checks if the user is logged in by checking the `loggedIn`
-     * variable. If the user is not logged in, the function returns an empty string.
-     * Otherwise, it retrieves the access token and username from the shared preferences
-     * file using the `getString` method, and then returns the access token as a string.
+     * returns the access token of the logged in user from the in-memory credentials.
+     *
+     * @returns the access token, empty if nobody is logged in.
      */
     private String getUserAccessToken() {
-        SensableUser user = new SensableUser(getActivity().getSharedPreferences(getString(R.string.preference_file_key), Context.MODE_PRIVATE), getActivity());
-        if (user.loggedIn) {
-            if (user.hasAccessToken) {
-                Log.d(TAG, "Loading Access token");
-                Log.d(TAG, getString(R.string.preference_file_key));
-                Log.d(TAG, getString(R.string.saved_access_token));
-                SharedPreferences sharedPreferences = getActivity().getSharedPreferences(getString(R.string.preference_file_key), Context.MODE_PRIVATE);
-                String username = sharedPreferences.getString(getString(R.string.saved_username), "");
-                Log.d(TAG, "Username: " + username);
-                String accessToken = sharedPreferences.getString(getString(R.string.saved_access_token), "");
-                Log.d(TAG, "Access Token: " + accessToken);
-                return accessToken;
-            } else {
-                Log.d(TAG, "No access Token");
-                return "";
-            }
-        } else {
-            Log.d(TAG, "Not logged in");
-            return "";
+        return CredentialProvider.getInstance(getActivity()).getAccessToken();
+    }
+
+    /**
+     * reads a number of minutes entered for the schedule.
+     *
+     * @param field field holding the minutes.
+     *
+     * @returns the minutes in milliseconds, 0 for the default if the field is empty.
+     */
+    private static long getMinutesMillis(EditText field) {
+        String minutes = field.getText().toString();
+        if (minutes.length() == 0) {
+            return 0;
         }
+        return Long.parseLong(minutes) * 60 * 1000;
+    }
 
+    /**
+     * reads the longest a deferred sample may be held back.
+     *
+     * @returns the entered number of hours in milliseconds, 0 for the default if the
+     * field is empty.
+     */
+    private long getMaxStalenessMillis() {
+        String hours = maxStaleness.getText().toString();
+        if (hours.length() == 0) {
+            return 0;
+        }
+        return Long.parseLong(hours) * 60 * 60 * 1000;
     }
 
 
@@ -0,0 +1,88 @@
+package io.sensable.client;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * keeps the credentials of the logged in user in memory for the whole process. They are
+ * read from the preferences once and replaced by `SensableUser` whenever it saves or
+ * deletes the user, so reading the access token, e.g. for every sensor event, is a
+ * plain field read.
+ */
+public class CredentialProvider {
+
+    private static CredentialProvider sInstance = null;
+
+    /**
+     * is an immutable snapshot of the credentials, so username and token always match.
+     */
+    private static class Credentials {
+        final String username;
+        final String accessToken;
+
+        Credentials(String username, String accessToken) {
+            this.username = username == null ? "" : username;
+            this.accessToken = accessToken == null ? "" : accessToken;
+        }
+    }
+
+    private volatile Credentials credentials;
+
+    /**
+     * returns the provider of the app, reading the saved credentials on first use.
+     *
+     * @param context context used to read the preferences.
+     *
+     * @returns the single `CredentialProvider` instance.
+     */
+    public static synchronized CredentialProvider getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new CredentialProvider(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private CredentialProvider(Context context) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(context.getString(R.string.preference_file_key), Context.MODE_PRIVATE);
+        credentials = new Credentials(
+                sharedPreferences.getString(context.getString(R.string.saved_username), ""),
+                sharedPreferences.getString(context.getString(R.string.saved_access_token), ""));
+    }
+
+    /**
+     * returns the username of the logged in user.
+     *
+     * @returns the username, empty if nobody is logged in.
+     */
+    public String getUsername() {
+        return credentials.username;
+    }
+
+    /**
+     * returns the access token of the logged in user.
+     *
+     * @returns the access token, empty if nobody is logged in or no token was issued.
+     */
+    public String getAccessToken() {
+        return credentials.accessToken;
+    }
+
+    /**
+     * replaces the cached credentials after a login or settings refresh.
+     *
+     * @param username username of the user.
+     *
+     * @param accessToken access token of the user, may be null.
+     */
+    void update(String username, String accessToken) {
+        credentials = new Credentials(username, accessToken);
+    }
+
+    /**
+     * forgets the cached credentials after a logout.
+     */
+    void clear() {
+        credentials = new Credentials("", "");
+    }
+
+}
@@ -0,0 +1,177 @@
+package io.sensable.client;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import io.sensable.client.network.CircuitBreaker;
+import io.sensable.client.network.RequestDispatcher;
+import io.sensable.client.network.ResilientClient;
+import io.sensable.client.scheduler.ScheduleHelper;
+import io.sensable.client.scheduler.WakeupPlanner;
+import io.sensable.client.upload.Histogram;
+import io.sensable.client.upload.OutboundQueue;
+import io.sensable.client.upload.UploadMetrics;
+import io.sensable.client.upload.UploadStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * shows how far behind the device is on uploads: the current depth and age of the
+ * outbound queue, the histograms of `UploadStats`, the batching counters of this
+ * process, the wake-ups the sampling schedule needs, and the state of the request
+ * dispatcher and circuit breakers. The report reads the database, so it is built on
+ * a background thread and only set on the main thread.
+ */
+public class DiagnosticsActivity extends Activity {
+
+    private static final long SCHEDULE_HORIZON_MILLIS = 24 * 60 * 60 * 1000;
+
+    private TextView text;
+    private ReportTask reportTask = null;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+        text = (TextView) findViewById(R.id.diagnostics_text);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        showDiagnostics(false);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (reportTask != null) {
+            reportTask.cancel(false);
+            reportTask = null;
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.diagnostics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.action_refresh) {
+            showDiagnostics(false);
+            return true;
+        } else if (id == R.id.action_reset_stats) {
+            showDiagnostics(true);
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * builds the report in the background and shows it once it is ready, replacing a
+     * report that is still being built.
+     *
+     * @param resetStats true to clear the upload statistics first.
+     */
+    private void showDiagnostics(boolean resetStats) {
+        if (reportTask != null) {
+            reportTask.cancel(false);
+        }
+        reportTask = new ReportTask(getApplicationContext(), resetStats);
+        reportTask.execute();
+    }
+
+    /**
+     * builds the report off the main thread.
+     */
+    private class ReportTask extends AsyncTask<Void, Void, String> {
+        private final Context context;
+        private final boolean resetStats;
+
+        ReportTask(Context context, boolean resetStats) {
+            this.context = context;
+            this.resetStats = resetStats;
+        }
+
+        @Override
+        protected String doInBackground(Void... params) {
+            if (resetStats) {
+                UploadStats.getInstance(context).clear();
+            }
+            return buildReport(context);
+        }
+
+        @Override
+        protected void onPostExecute(String report) {
+            text.setText(report);
+            if (reportTask == this) {
+                reportTask = null;
+            }
+        }
+    }
+
+    private static String buildReport(Context context) {
+        StringBuilder report = new StringBuilder();
+
+        OutboundQueue outboundQueue = new OutboundQueue(context);
+        long oldest = outboundQueue.oldestEnqueuedAt();
+        report.append("Upload queue\n");
+        report.append("  ").append(outboundQueue.size()).append(" samples");
+        if (oldest > 0) {
+            report.append(", oldest ").append((System.currentTimeMillis() - oldest) / 1000).append("s old");
+        }
+        report.append("\n\n");
+
+        report.append("Upload statistics\n");
+        for (Map.Entry<String, Histogram> entry : UploadStats.getInstance(context).getHistograms().entrySet()) {
+            report.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        report.append('\n');
+
+        report.append("Scheduler ticks\n");
+        report.append("  ").append(UploadMetrics.getInstance()).append("\n\n");
+
+        // Overdue sensables are simulated from now, like the scheduler would sample them
+        long now = System.currentTimeMillis();
+        List<WakeupPlanner.Entry> schedule = new ArrayList<WakeupPlanner.Entry>();
+        List<WakeupPlanner.Entry> exact = new ArrayList<WakeupPlanner.Entry>();
+        for (WakeupPlanner.Entry entry : new ScheduleHelper(context).loadWakeupEntries()) {
+            long dueAt = Math.max(now, entry.getDueAt());
+            schedule.add(new WakeupPlanner.Entry(entry.getId(), dueAt, entry.getIntervalMillis(), entry.getToleranceMillis()));
+            exact.add(new WakeupPlanner.Entry(entry.getId(), dueAt, entry.getIntervalMillis(), 0));
+        }
+        report.append("Schedule\n");
+        report.append("  ").append(schedule.size()).append(" sensables, ")
+                .append(String.format(Locale.US, "%.1f", WakeupPlanner.wakeupsPerHour(schedule, SCHEDULE_HORIZON_MILLIS)))
+                .append(" wake-ups/hour, ")
+                .append(String.format(Locale.US, "%.1f", WakeupPlanner.wakeupsPerHour(exact, SCHEDULE_HORIZON_MILLIS)))
+                .append(" without coalescing\n\n");
+
+        RequestDispatcher dispatcher = RequestDispatcher.getInstance();
+        report.append("Requests\n");
+        for (RequestDispatcher.Priority priority : RequestDispatcher.Priority.values()) {
+            report.append("  ").append(priority).append(": ").append(dispatcher.getRunning(priority)).append(" running, ")
+                    .append(dispatcher.getQueued(priority)).append(" queued\n");
+        }
+        report.append('\n');
+
+        report.append("Circuit breakers\n");
+        for (CircuitBreaker breaker : ResilientClient.getCircuitBreakers().values()) {
+            report.append("  ").append(breaker.getEndpoint()).append(": ").append(breaker.getState())
+                    .append(", opened ").append(breaker.getTransitionCount(CircuitBreaker.State.OPEN)).append(" times\n");
+        }
+
+        return report.toString();
+    }
+
+}
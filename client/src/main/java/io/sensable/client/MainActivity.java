@@ -18,6 +18,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 import io.sensable.SensableService;
 import io.sensable.client.adapter.TabsPagerAdapter;
+import io.sensable.client.network.StartupOrchestrator;
 import io.sensable.model.ScheduledSensable;
 import io.sensable.model.Sensable;
 import io.sensable.model.Statistics;
@@ -81,6 +82,9 @@ public class MainActivity extends FragmentActivity implements ActionBar.TabListe
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Open the connection and refresh the favourites while the UI is being built
+        final StartupOrchestrator startupOrchestrator = StartupOrchestrator.getInstance(this);
+        startupOrchestrator.start();
         setContentView(R.layout.main_activity);
 
         SharedPreferences sharedPref = this.getSharedPreferences(getString(R.string.preference_file_key), Context.MODE_PRIVATE);
@@ -92,6 +96,12 @@ public class MainActivity extends FragmentActivity implements ActionBar.TabListe
         }
 
         initialiseTabs();
+        getWindow().getDecorView().post(new Runnable() {
+            @Override
+            public void run() {
+                startupOrchestrator.onFirstFrame();
+            }
+        });
     }
 
     /**
@@ -269,6 +279,8 @@ public class MainActivity extends FragmentActivity implements ActionBar.TabListe
         int id = item.getItemId();
         if (id == R.id.action_about) {
             launchAbout();
+        } else if (id == R.id.action_diagnostics) {
+            startActivity(new Intent(this, DiagnosticsActivity.class));
         } else if (id == R.id.action_login) {
             loginDialog();
         } else if (id == R.id.action_logout) {
@@ -0,0 +1,105 @@
+package io.sensable.client;
+
+import io.sensable.model.Sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * provides helpers for combining the cached sample history of a sensable with the
+ * samples returned by an incremental fetch. Histories are kept sorted by ascending
+ * timestamp so the newest sample is always the last one.
+ */
+public class SampleHelper {
+
+    private static final Comparator<Sample> TIMESTAMP_ORDER = new Comparator<Sample>() {
+        @Override
+        public int compare(Sample a, Sample b) {
+            return a.getTimestamp() < b.getTimestamp() ? -1 : (a.getTimestamp() == b.getTimestamp() ? 0 : 1);
+        }
+    };
+
+    /**
+     * returns the timestamp of the newest sample in a history sorted by ascending
+     * timestamp.
+     *
+     * @param samples cached history of a sensable, oldest first.
+     *
+     * @returns the timestamp of the last sample, or 0 when the history is empty.
+     */
+    public static long latestTimestamp(List<Sample> samples) {
+        if (samples == null || samples.isEmpty()) {
+            return 0;
+        }
+        return samples.get(samples.size() - 1).getTimestamp();
+    }
+
+    /**
+     * merges the cached history with freshly fetched samples into a single history sorted
+     * by ascending timestamp in one linear pass. The fetched samples are sorted first, which
+     * is cheap as the server already returns them in order. When both contain a sample with
+     * the same timestamp the incoming one wins.
+     *
+     * @param cached history that is already held locally, oldest first.
+     *
+     * @param incoming samples fetched from sensable.io.
+     *
+     * @returns a new array holding the samples of both histories without duplicates.
+     */
+    public static Sample[] mergeSamples(List<Sample> cached, Sample[] incoming) {
+        if (incoming == null) {
+            incoming = new Sample[]{};
+        } else {
+            incoming = incoming.clone();
+            Arrays.sort(incoming, TIMESTAMP_ORDER);
+        }
+        List<Sample> merged = new ArrayList<Sample>(cached.size() + incoming.length);
+        int i = 0;
+        int j = 0;
+        while (i < cached.size() || j < incoming.length) {
+            if (j >= incoming.length) {
+                merged.add(cached.get(i++));
+            } else if (i >= cached.size()) {
+                merged.add(incoming[j++]);
+            } else {
+                long cachedTimestamp = cached.get(i).getTimestamp();
+                long incomingTimestamp = incoming[j].getTimestamp();
+                if (cachedTimestamp < incomingTimestamp) {
+                    merged.add(cached.get(i++));
+                } else if (cachedTimestamp > incomingTimestamp) {
+                    merged.add(incoming[j++]);
+                } else {
+                    merged.add(incoming[j++]);
+                    i++;
+                }
+            }
+        }
+        return merged.toArray(new Sample[merged.size()]);
+    }
+
+    /**
+     * returns the samples of a fetched history that are newer than a given timestamp,
+     * i.e. the ones that still need to be appended to the cache.
+     *
+     * @param samples samples fetched from sensable.io.
+     *
+     * @param since timestamp of the newest cached sample.
+     *
+     * @returns the samples with a timestamp strictly greater than `since`.
+     */
+    public static List<Sample> samplesAfter(Sample[] samples, long since) {
+        List<Sample> newer = new ArrayList<Sample>();
+        if (samples == null) {
+            return newer;
+        }
+        for (Sample sample : samples) {
+            if (sample.getTimestamp() > since) {
+                newer.add(sample);
+            }
+        }
+        return newer;
+    }
+
+}
@@ -18,7 +18,12 @@ import android.widget.TextView;
 import android.widget.Toast;
 import io.sensable.SensableService;
 import io.sensable.client.adapter.ExpandableListAdapter;
+import io.sensable.client.network.HistoryDownloader;
+import io.sensable.client.network.RequestDispatcher;
+import io.sensable.client.network.RequestScope;
 import io.sensable.client.scheduler.ScheduleHelper;
+import io.sensable.client.settings.Config;
+import io.sensable.client.sqlite.SavedSamplesTable;
 import io.sensable.client.sqlite.SavedSensablesTable;
 import io.sensable.client.sqlite.ScheduledSensableContentProvider;
 import io.sensable.client.sqlite.ScheduledSensablesTable;
@@ -27,7 +32,6 @@ import io.sensable.model.Sample;
 import io.sensable.model.ScheduledSensable;
 import io.sensable.model.Sensable;
 import retrofit.Callback;
-import retrofit.RestAdapter;
 import retrofit.RetrofitError;
 import retrofit.client.Response;
 
@@ -67,6 +71,11 @@ public class SensableActivity extends Activity {
 
     private ArrayList<Sample> mSamples;
 
+    // History held locally, oldest first. Only samples newer than its last entry are fetched.
+    private List<Sample> mCachedSamples;
+
+    private RequestScope mRequestScope;
+
     /**
      * sets up the UI for the sensable activity, including displaying a list of sensables
      * and their locations, and adding an button to save or unsave a sensable.
@@ -105,6 +114,10 @@ public class SensableActivity extends Activity {
         if (sensable.getSamples() == null) {
             sensable.setSamples(new Sample[]{});
         }
+        mCachedSamples = loadCachedSamples();
+        if (!mCachedSamples.isEmpty()) {
+            sensable.setSamples(SampleHelper.mergeSamples(mCachedSamples, sensable.getSamples()));
+        }
         mSamples = new ArrayList<Sample>(Arrays.asList(sensable.getSamples()));
 
         setTitle(sensable.getName());
@@ -248,20 +261,20 @@ public class SensableActivity extends Activity {
 
     /**
      * sets up a REST API client to fetch sensory data from a server, and calls the
-     * `getSensorData` method to retrieve the data. It then updates the `sensable` object
-     * and related views with the obtained data.
+     * `getSensorData` method to retrieve the data. When part of the history is already
+     * held locally only the samples newer than the latest one are requested and merged
+     * in. Long histories and long gaps are downloaded as parallel time-range chunks. It then updates the `sensable` object and related views with the obtained data.
      */
     @Override
     public void onStart() {
         super.onStart();
 
-        RestAdapter restAdapter = new RestAdapter.Builder()
-                .setEndpoint("http://sensable.io")
-                .build();
+        mRequestScope = new RequestScope(RequestDispatcher.Priority.INTERACTIVE);
+        SensableService service = mRequestScope.getService();
 
-        SensableService service = restAdapter.create(SensableService.class);
+        final long since = SampleHelper.latestTimestamp(mCachedSamples);
 
-        service.getSensorData(sensable.getSensorid(), new Callback<Sensable>() {
+        final Callback<Sensable> callback = new Callback<Sensable>() {
             /**
              * updates a sensable object and a view after a callback success response.
              * 
@@ -285,6 +298,10 @@ public class SensableActivity extends Activity {
             @Override
             public void success(Sensable sensable, Response response) {
                 Log.d(TAG, "Callback Success - Sensable");
+                Sample[] merged = SampleHelper.mergeSamples(mCachedSamples, sensable.getSamples());
+                cacheSamples(SampleHelper.samplesAfter(merged, since));
+                mCachedSamples = new ArrayList<Sample>(Arrays.asList(merged));
+                sensable.setSamples(merged);
                 updateSensable(sensable);
                 updateView(sensable);
             }
@@ -302,7 +319,37 @@ public class SensableActivity extends Activity {
             public void failure(RetrofitError retrofitError) {
                 Log.e(TAG, "Callback failure" + retrofitError.toString());
             }
-        });
+        };
+
+        long now = System.currentTimeMillis();
+        if (since > 0 && now - since <= Config.HISTORY_CHUNK_MILLIS) {
+            service.getSensorData(sensable.getSensorid(), since, callback);
+        } else {
+            // Long histories and long gaps are probed with one bounded request first
+            HistoryDownloader downloader = new HistoryDownloader(service, Config.HISTORY_DOWNLOAD_PARALLELISM,
+                    Config.HISTORY_PROBE_LIMIT);
+            downloader.download(sensable.getSensorid(), since > 0 ? since + 1 : 0, now, new HistoryDownloader.Listener() {
+                @Override
+                public void onComplete(Sensable sensable) {
+                    callback.success(sensable, null);
+                }
+
+                @Override
+                public void onFailure(RetrofitError retrofitError) {
+                    callback.failure(retrofitError);
+                }
+            });
+        }
+    }
+
+    /**
+     * cancels the sensor data request when the activity is no longer visible, so its
+     * response is neither decoded nor applied to the view.
+     */
+    @Override
+    public void onStop() {
+        mRequestScope.cancel();
+        super.onStop();
     }
 
     /**
@@ -384,6 +431,7 @@ public class SensableActivity extends Activity {
                     mNewValues                          // the values to insert
             );
             savedLocally = true;
+            cacheSamples(mSamples);
             updateSaveButton();
         }
     }
@@ -449,6 +497,41 @@ public class SensableActivity extends Activity {
         return count.getCount() > 0;
     }
 
+    /**
+     * reads the cached sample history of this sensable from the local database.
+     *
+     * @returns the cached samples sorted by ascending timestamp, empty if nothing is cached.
+     */
+    private List<Sample> loadCachedSamples() {
+        List<Sample> samples = new ArrayList<Sample>();
+        Cursor cursor = getContentResolver().query(SensableContentProvider.getSamplesUri(sensable.getSensorid()), null, null, null, null);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                samples.add(SavedSamplesTable.getSample(cursor));
+            }
+            cursor.close();
+        }
+        return samples;
+    }
+
+    /**
+     * appends samples to the local history of this sensable in a single transaction.
+     * Only favourites keep a local history, so nothing is written otherwise.
+     *
+     * @param samples samples to append to the cache.
+     */
+    private void cacheSamples(List<Sample> samples) {
+        if (samples.isEmpty() || !checkSavedLocally()) {
+            return;
+        }
+        ContentValues[] values = new ContentValues[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            values[i] = SavedSamplesTable.serializeSampleForSqlLite(sensable.getSensorid(), samples.get(i));
+        }
+        int rowsInserted = getContentResolver().bulkInsert(SensableContentProvider.getSamplesUri(sensable.getSensorid()), values);
+        Log.d(TAG, "Cached " + rowsInserted + " new samples");
+    }
+
     /**
      * retrieves a Cursor object containing data from a scheduled database using a query
      * executed by the device's content resolver.
@@ -4,17 +4,14 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 import io.sensable.SensableService;
+import io.sensable.client.network.RequestDispatcher;
+import io.sensable.client.network.SensableClient;
 import io.sensable.model.User;
 import io.sensable.model.UserLogin;
 import retrofit.Callback;
-import retrofit.RestAdapter;
 import retrofit.RetrofitError;
 import retrofit.client.Response;
 
-import java.net.CookieHandler;
-import java.net.CookieManager;
-import java.net.CookiePolicy;
-
 /**
  * Created by simonmadine on 12/07/2014.
  */
@@ -43,16 +40,7 @@ public class SensableUser {
         mUser = new User();
         loggedIn = readUserFromPreferences();
 
-        //TODO: Remove this once API doesn't use cookies
-        CookieManager cookieManager = new CookieManager();
-        cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
-        CookieHandler.setDefault(cookieManager);
-
-        RestAdapter restAdapter = new RestAdapter.Builder()
-                .setLogLevel(RestAdapter.LogLevel.FULL)
-                .setEndpoint("http://sensable.io")
-                .build();
-        service = restAdapter.create(SensableService.class);
+        service = SensableClient.getInstance().getService(RequestDispatcher.Priority.INTERACTIVE);
 
     }
 
@@ -277,6 +265,7 @@ public class SensableUser {
         editor.putString(context.getString(R.string.saved_email), mUser.getEmail());
         editor.putString(context.getString(R.string.saved_access_token), mUser.getAccessToken());
         editor.commit();
+        CredentialProvider.getInstance(context).update(mUser.getUsername(), mUser.getAccessToken());
     }
 
     /**
@@ -296,6 +285,7 @@ public class SensableUser {
         editor.remove(context.getString(R.string.saved_email));
         editor.remove(context.getString(R.string.saved_access_token));
         editor.commit();
+        CredentialProvider.getInstance(context).clear();
         mUser = new User();
         loggedIn = false;
         hasAccessToken = false;
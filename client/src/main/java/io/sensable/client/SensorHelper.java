@@ -80,6 +80,26 @@ public class SensorHelper {
         return unit;
     }
 
+    /**
+     * returns whether a sensor measures an environmental quantity that barely changes
+     * between scheduler ticks, so its readings are worth filtering with a deadband.
+     *
+     * @param sensorType sensor type as defined in `Sensor`.
+     *
+     * @returns true for light, pressure, humidity and temperature sensors.
+     */
+    public static boolean isSlowlyChanging(int sensorType) {
+        switch (sensorType) {
+            case Sensor.TYPE_LIGHT:
+            case Sensor.TYPE_PRESSURE:
+            case Sensor.TYPE_RELATIVE_HUMIDITY:
+            case Sensor.TYPE_AMBIENT_TEMPERATURE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * determines an image resource based on a sensor type, using a switch statement to
      * map the sensor type to a corresponding image resource ID.
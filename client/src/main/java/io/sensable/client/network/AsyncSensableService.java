@@ -0,0 +1,108 @@
+package io.sensable.client.network;
+
+import io.sensable.SensableService;
+import io.sensable.model.Sensable;
+import io.sensable.model.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * exposes the read operations of `SensableService` as `SensableFuture`s, next to the
+ * callback and blocking methods. Each call runs the blocking variant on the dispatcher,
+ * so fanning out over many sensables is bounded by the concurrency of the priority class.
+ * A service bound to a `RequestScope` submits its calls with the scope as their tag, so
+ * cancelling the scope drops the calls still queued and leaves the responses of running
+ * ones undecoded.
+ */
+public class AsyncSensableService {
+
+    private final SensableService service;
+    private final RequestDispatcher.Priority priority;
+    private final RequestScope scope;
+
+    /**
+     * @param priority priority class of the requests made through this service.
+     */
+    public AsyncSensableService(RequestDispatcher.Priority priority) {
+        this.service = SensableClient.getInstance().getService(priority);
+        this.priority = priority;
+        this.scope = null;
+    }
+
+    /**
+     * @param scope scope the requests are bound to, created with the same priority.
+     *
+     * @param priority priority class of the requests made through this service.
+     */
+    public AsyncSensableService(RequestScope scope, RequestDispatcher.Priority priority) {
+        this.service = scope.getService();
+        this.priority = priority;
+        this.scope = scope;
+    }
+
+    public SensableFuture<Sensable> getSensorData(final String id) {
+        return submit(new Callable<Sensable>() {
+            @Override
+            public Sensable call() {
+                return service.getSensorData(id);
+            }
+        });
+    }
+
+    public SensableFuture<Sensable> getSensorData(final String id, final long since) {
+        return submit(new Callable<Sensable>() {
+            @Override
+            public Sensable call() {
+                return service.getSensorData(id, since);
+            }
+        });
+    }
+
+    public SensableFuture<List<Sensable>> listSensables(final int page, final int limit) {
+        return submit(new Callable<List<Sensable>>() {
+            @Override
+            public List<Sensable> call() {
+                return service.listSensables(page, limit);
+            }
+        });
+    }
+
+    public SensableFuture<Statistics> getStatistics() {
+        return submit(new Callable<Statistics>() {
+            @Override
+            public Statistics call() {
+                return service.getStatistics();
+            }
+        });
+    }
+
+    private <T> SensableFuture<T> submit(Callable<T> call) {
+        if (scope == null) {
+            return SensableFuture.submit(priority, call);
+        }
+        Object previousTag = RequestDispatcher.setCurrentTag(scope);
+        try {
+            return SensableFuture.submit(priority, call);
+        } finally {
+            RequestDispatcher.setCurrentTag(previousTag);
+        }
+    }
+
+    /**
+     * fetches the data of several sensables concurrently.
+     *
+     * @param ids IDs of the sensables.
+     *
+     * @returns one future per sensable, in the order of `ids`.
+     */
+    public List<SensableFuture<Sensable>> getSensorData(List<String> ids) {
+        List<SensableFuture<Sensable>> futures = new ArrayList<SensableFuture<Sensable>>(ids.size());
+        for (String id : ids) {
+            futures.add(getSensorData(id));
+        }
+        return futures;
+    }
+
+}
@@ -0,0 +1,39 @@
+package io.sensable.client.network;
+
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+import java.lang.reflect.Type;
+
+/**
+ * wraps a `Converter` so that the responses of requests whose `RequestScope` has been
+ * cancelled are not decoded. The user has already left the screen the response was
+ * meant for, so parsing it would only cost CPU and allocations.
+ */
+public class CancellableConverter implements Converter {
+
+    private final Converter converter;
+
+    /**
+     * @param converter converter doing the actual decoding and encoding.
+     */
+    public CancellableConverter(Converter converter) {
+        this.converter = converter;
+    }
+
+    @Override
+    public Object fromBody(TypedInput body, Type type) throws ConversionException {
+        if (RequestScope.isCurrentCancelled()) {
+            throw new ConversionException("Request cancelled, response not decoded");
+        }
+        return converter.fromBody(body, type);
+    }
+
+    @Override
+    public TypedOutput toBody(Object object) {
+        return converter.toBody(object);
+    }
+
+}
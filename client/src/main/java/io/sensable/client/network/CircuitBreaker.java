@@ -0,0 +1,118 @@
+package io.sensable.client.network;
+
+import android.util.Log;
+
+/**
+ * tracks the health of a single endpoint of sensable.io. After `FAILURE_THRESHOLD`
+ * consecutive failures the breaker opens and requests fail fast for `OPEN_MILLIS`;
+ * after that a single trial request is let through (half open) which either closes
+ * the breaker again or re-opens it. Every state transition is counted so it can be
+ * reported.
+ */
+public class CircuitBreaker {
+
+    private static final String TAG = CircuitBreaker.class.getSimpleName();
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_MILLIS = 30 * 1000;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String endpoint;
+    private final int[] transitions = new int[State.values().length];
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    /**
+     * @param endpoint name of the endpoint guarded by this breaker, used in logs.
+     */
+    public CircuitBreaker(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * decides whether a request may be sent to the endpoint now. Moves an open breaker
+     * to half open once its cool-down has passed and admits one trial request.
+     *
+     * @returns true if the request may be sent, false if it should fail fast.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < OPEN_MILLIS) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                trialInFlight = true;
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * records a successful request and closes the breaker.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    /**
+     * records a failed request and opens the breaker when the threshold is reached or
+     * the half open trial failed.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD)) {
+            openedAt = System.currentTimeMillis();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * returns the current state of the breaker.
+     *
+     * @returns the state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * returns how often the breaker moved into a state.
+     *
+     * @param target state to count transitions into.
+     *
+     * @returns the number of transitions into `target`.
+     */
+    public synchronized int getTransitionCount(State target) {
+        return transitions[target.ordinal()];
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    private void transitionTo(State target) {
+        Log.i(TAG, endpoint + ": " + state + " -> " + target);
+        state = target;
+        transitions[target.ordinal()]++;
+    }
+
+}
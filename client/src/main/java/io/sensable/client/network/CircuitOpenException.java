@@ -0,0 +1,18 @@
+package io.sensable.client.network;
+
+import java.io.IOException;
+
+/**
+ * is thrown by `ResilientClient` for a request refused by an open `CircuitBreaker`,
+ * i.e. a request that never left the device.
+ */
+public class CircuitOpenException extends IOException {
+
+    /**
+     * @param endpoint endpoint whose circuit is open.
+     */
+    public CircuitOpenException(String endpoint) {
+        super("Circuit open for " + endpoint);
+    }
+
+}
@@ -0,0 +1,227 @@
+package io.sensable.client.network;
+
+import android.content.ContentProviderOperation;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.util.Log;
+import io.sensable.client.settings.Config;
+import io.sensable.client.sqlite.SampleStore;
+import io.sensable.client.sqlite.SavedSamplesTable;
+import io.sensable.client.sqlite.SavedSensablesTable;
+import io.sensable.client.sqlite.SensableContentProvider;
+import io.sensable.model.Sample;
+import io.sensable.model.Sensable;
+import retrofit.android.MainThreadExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * refreshes the latest samples of every favourite at once. The requests fan out through
+ * `AsyncSensableService`, so the `PREFETCH` class bounds how many run in parallel. Each
+ * refresh has its own `RequestScope`, cancelled once every request has answered or timed
+ * out, so requests still queued at the deadline are dropped and late responses are not
+ * decoded. Whatever arrived in
+ * time is written in a single batch, one transaction and one change notification for
+ * the favourites list, rather than one per favourite. It is the only path that fetches
+ * the favourites on a cold start: the `StartupOrchestrator` and the favourites list both
+ * ask it, and a request made while a refresh is running joins that refresh. A favourite
+ * without a cached history only gets its latest sample from the last
+ * `Config.FAVOURITES_RECENT_WINDOW_MILLIS`, its full history is downloaded when it is
+ * opened.
+ */
+public class FavouritesRefresher {
+
+    private static final String TAG = FavouritesRefresher.class.getSimpleName();
+
+    /**
+     * receives the outcome of a refresh on the main thread.
+     */
+    public interface Listener {
+        /**
+         * @param refreshed number of favourites that answered before the deadline.
+         *
+         * @param total number of favourites.
+         */
+        void onRefreshed(int refreshed, int total);
+    }
+
+    private static FavouritesRefresher sInstance = null;
+
+    private final Context context;
+    private final SampleStore sampleStore;
+    private boolean running = false;
+    // Listeners of the refresh that is running
+    private List<Listener> listeners = new ArrayList<Listener>();
+
+    /**
+     * returns the refresher of the app.
+     *
+     * @param context context used to reach the local store.
+     *
+     * @returns the single `FavouritesRefresher` instance.
+     */
+    public static synchronized FavouritesRefresher getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new FavouritesRefresher(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private FavouritesRefresher(Context context) {
+        this.context = context;
+        this.sampleStore = new SampleStore(context);
+    }
+
+    /**
+     * refreshes all favourites. While a refresh is still running no new one is started,
+     * the listener is notified when the running one is done.
+     *
+     * @param deadlineMillis time allowed for the whole refresh, in milliseconds.
+     *
+     * @param listener listener notified once the results are stored, may be null.
+     */
+    public void refresh(final long deadlineMillis, final Listener listener) {
+        synchronized (this) {
+            if (listener != null) {
+                listeners.add(listener);
+            }
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        RequestDispatcher.getInstance().submit(RequestDispatcher.Priority.PREFETCH, new Runnable() {
+            @Override
+            public void run() {
+                fanOut(SystemClock.elapsedRealtime() + deadlineMillis);
+            }
+        });
+    }
+
+    private void fanOut(long deadline) {
+        final List<Sensable> favourites = loadFavourites();
+        final RequestScope scope = new RequestScope(RequestDispatcher.Priority.PREFETCH);
+        AsyncSensableService service = new AsyncSensableService(scope, RequestDispatcher.Priority.PREFETCH);
+        final boolean[] cached = new boolean[favourites.size()];
+        List<SensableFuture<Sensable>> futures = new ArrayList<SensableFuture<Sensable>>(favourites.size());
+        long remaining = Math.max(0, deadline - SystemClock.elapsedRealtime());
+        for (int i = 0; i < favourites.size(); i++) {
+            String sensorId = favourites.get(i).getSensorid();
+            long since = sampleStore.latestTimestamp(sensorId);
+            cached[i] = since > 0;
+            if (!cached[i]) {
+                since = System.currentTimeMillis() - Config.FAVOURITES_RECENT_WINDOW_MILLIS;
+            }
+            futures.add(service.getSensorData(sensorId, since).withTimeout(remaining));
+        }
+        final long begin = SystemClock.elapsedRealtime();
+        SensableFuture.successfulOf(futures).addListener(new SensableFuture.Listener<List<Sensable>>() {
+            @Override
+            public void onSuccess(List<Sensable> results) {
+                // Only requests that missed the deadline are left
+                scope.cancel();
+                int refreshed = store(favourites, cached, results);
+                Log.d(TAG, "Refreshed " + refreshed + " of " + favourites.size() + " favourites in "
+                        + (SystemClock.elapsedRealtime() - begin) + "ms");
+                finish(refreshed, favourites.size());
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // successfulOf never fails
+                scope.cancel();
+                finish(0, favourites.size());
+            }
+        }, SensableFuture.SAME_THREAD);
+    }
+
+    /**
+     * writes the new samples and last samples of all refreshed favourites in one batch.
+     * Favourites without a cached history only get their last sample, so the cache never
+     * starts in the middle of a history.
+     *
+     * @returns the number of favourites that were refreshed.
+     */
+    private int store(List<Sensable> favourites, boolean[] cached, List<Sensable> results) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>();
+        int refreshed = 0;
+        for (int i = 0; i < favourites.size(); i++) {
+            Sensable result = results.get(i);
+            if (result == null) {
+                continue;
+            }
+            refreshed++;
+            Sample[] samples = result.getSamples();
+            if (samples == null || samples.length == 0) {
+                continue;
+            }
+            String sensorId = favourites.get(i).getSensorid();
+            Sample newest = samples[0];
+            for (Sample sample : samples) {
+                if (cached[i]) {
+                    operations.add(ContentProviderOperation.newInsert(SensableContentProvider.getSamplesUri(sensorId))
+                            .withValues(SavedSamplesTable.serializeSampleForSqlLite(sensorId, sample))
+                            .build());
+                }
+                if (sample.getTimestamp() > newest.getTimestamp()) {
+                    newest = sample;
+                }
+            }
+            Sensable lastSample = new Sensable();
+            lastSample.setSensorid(sensorId);
+            lastSample.setSample(newest);
+            operations.add(ContentProviderOperation.newUpdate(Uri.parse(SensableContentProvider.CONTENT_URI + "/" + sensorId))
+                    .withValues(SavedSensablesTable.serializeSensableWithSingleSampleForSqlLite(lastSample))
+                    .build());
+        }
+        if (operations.isEmpty()) {
+            return refreshed;
+        }
+        try {
+            context.getContentResolver().applyBatch(SensableContentProvider.AUTHORITY, operations);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Storing the refresh failed: " + e.toString());
+        } catch (OperationApplicationException e) {
+            Log.e(TAG, "Storing the refresh failed: " + e.toString());
+        }
+        return refreshed;
+    }
+
+    private void finish(final int refreshed, final int total) {
+        final List<Listener> done;
+        synchronized (this) {
+            running = false;
+            done = listeners;
+            listeners = new ArrayList<Listener>();
+        }
+        if (done.isEmpty()) {
+            return;
+        }
+        new MainThreadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : done) {
+                    listener.onRefreshed(refreshed, total);
+                }
+            }
+        });
+    }
+
+    private List<Sensable> loadFavourites() {
+        List<Sensable> favourites = new ArrayList<Sensable>();
+        Cursor cursor = context.getContentResolver().query(SensableContentProvider.CONTENT_URI, null, null, null, null);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                favourites.add(SavedSensablesTable.getSensable(cursor));
+            }
+            cursor.close();
+        }
+        return favourites;
+    }
+
+}
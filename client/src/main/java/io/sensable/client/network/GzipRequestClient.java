@@ -0,0 +1,123 @@
+package io.sensable.client.network;
+
+import android.util.Log;
+import io.sensable.client.settings.Config;
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * is a `Client` decorator that gzips the bodies of sample uploads. Upload bodies are
+ * repetitive JSON (the same keys and access token over and over) and compress very
+ * well, but compressing tiny bodies costs more than it saves, so only bodies of at
+ * least `Config.GZIP_MIN_BODY_BYTES` are compressed.
+ */
+public class GzipRequestClient implements Client {
+
+    private static final String TAG = GzipRequestClient.class.getSimpleName();
+
+    private static final String COMPRESSED_PATH = "/sensed";
+
+    /**
+     * is told the size of every sample upload the server accepted.
+     */
+    public interface UploadListener {
+        /**
+         * @param bytes size of the request body, after compression if it was compressed.
+         */
+        void onUploadSent(long bytes);
+    }
+
+    private final Client client;
+    private volatile int compressionLevel = Config.GZIP_COMPRESSION_LEVEL;
+    private volatile UploadListener uploadListener;
+
+    /**
+     * @param client client performing the actual HTTP requests.
+     */
+    public GzipRequestClient(Client client) {
+        this.client = client;
+    }
+
+    /**
+     * sets the deflate level used for new requests, trading CPU for upload size.
+     *
+     * @param compressionLevel level between 1 (fastest) and 9 (smallest).
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * sets the listener told about sample uploads, replacing any previous one.
+     *
+     * @param uploadListener listener, null to remove it.
+     */
+    public void setUploadListener(UploadListener uploadListener) {
+        this.uploadListener = uploadListener;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        if (shouldCompress(request)) {
+            request = compress(request);
+        }
+        Response response = client.execute(request);
+        // Failed uploads are retried later and would otherwise be counted twice
+        UploadListener listener = uploadListener;
+        if (listener != null && isUpload(request) && response.getStatus() >= 200 && response.getStatus() < 300) {
+            listener.onUploadSent(request.getBody().length());
+        }
+        return response;
+    }
+
+    private boolean isUpload(Request request) {
+        return "POST".equals(request.getMethod())
+                && request.getBody() != null
+                && COMPRESSED_PATH.equals(SensableClient.endpointOf(request.getUrl()));
+    }
+
+    private boolean shouldCompress(Request request) {
+        TypedOutput body = request.getBody();
+        return Config.GZIP_UPLOADS
+                && "POST".equals(request.getMethod())
+                && body != null
+                && body.length() >= Config.GZIP_MIN_BODY_BYTES
+                && COMPRESSED_PATH.equals(SensableClient.endpointOf(request.getUrl()));
+    }
+
+    private Request compress(Request request) throws IOException {
+        TypedOutput body = request.getBody();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) body.length() / 4);
+        OutputStream gzip = new LevelledGzipOutputStream(bytes, compressionLevel);
+        body.writeTo(gzip);
+        gzip.close();
+        Log.d(TAG, "Compressed " + body.length() + " to " + bytes.size() + " bytes");
+
+        List<Header> headers = new ArrayList<Header>(request.getHeaders());
+        headers.add(new Header("Content-Encoding", "gzip"));
+        return new Request(request.getMethod(), request.getUrl(), headers,
+                new TypedByteArray(body.mimeType(), bytes.toByteArray()));
+    }
+
+    /**
+     * is a `GZIPOutputStream` with a configurable deflate level.
+     */
+    private static class LevelledGzipOutputStream extends GZIPOutputStream {
+        LevelledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out);
+            def.setLevel(level);
+        }
+    }
+
+}
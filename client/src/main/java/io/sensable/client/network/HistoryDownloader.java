@@ -0,0 +1,261 @@
+package io.sensable.client.network;
+
+import android.util.Log;
+import io.sensable.SensableService;
+import io.sensable.client.SampleHelper;
+import io.sensable.client.settings.Config;
+import io.sensable.model.Sample;
+import io.sensable.model.Sensable;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * downloads a long sample history. The range is first probed with a single request
+ * bounded to `probeLimit` samples, which is all most sensables need. Only if the probe
+ * comes back full is the range fetched as a set of time-range chunks concurrently, with
+ * at most `parallelism` chunks in flight. Once every chunk has arrived they are stitched
+ * back together in order through `SampleHelper.mergeSamples`, so overlapping or
+ * unordered chunks still produce a sorted history without duplicates. A server that
+ * answers with samples outside the requested range ignores the range parameters, so
+ * its answer is taken as the whole history and no further chunks are requested.
+ */
+public class HistoryDownloader {
+
+    private static final String TAG = HistoryDownloader.class.getSimpleName();
+
+    /**
+     * receives the outcome of a download on the main thread.
+     */
+    public interface Listener {
+        /**
+         * @param sensable the sensable with its complete history in the requested range.
+         */
+        void onComplete(Sensable sensable);
+
+        /**
+         * @param retrofitError error of the first chunk that failed.
+         */
+        void onFailure(RetrofitError retrofitError);
+    }
+
+    private final SensableService service;
+    private final int parallelism;
+    private final int probeLimit;
+
+    /**
+     * @param service service used to fetch the chunks.
+     *
+     * @param parallelism maximum number of chunks in flight at once.
+     *
+     * @param probeLimit maximum number of samples of the probing request.
+     */
+    public HistoryDownloader(SensableService service, int parallelism, int probeLimit) {
+        this.service = service;
+        this.parallelism = parallelism;
+        this.probeLimit = probeLimit;
+    }
+
+    /**
+     * splits `[from, to)` into consecutive chunks of at most `chunkMillis`.
+     *
+     * @param from start of the range, inclusive.
+     *
+     * @param to end of the range, exclusive.
+     *
+     * @param chunkMillis maximum length of a chunk.
+     *
+     * @returns the chunks as `{from, to}` pairs, oldest first.
+     */
+    public static List<long[]> split(long from, long to, long chunkMillis) {
+        List<long[]> ranges = new ArrayList<long[]>();
+        for (long start = from; start < to; start += chunkMillis) {
+            ranges.add(new long[]{start, Math.min(to, start + chunkMillis)});
+        }
+        return ranges;
+    }
+
+    /**
+     * returns the chunks a range is downloaded in once it is too long for one request.
+     * The server returns the oldest samples of a range first, so nothing is older than
+     * the oldest sample of the probe and the chunks start there rather than at `from`,
+     * which is 0 for a whole history.
+     *
+     * @param from start of the range, inclusive, 0 for the whole history.
+     *
+     * @param oldest timestamp of the oldest sample the probe returned.
+     *
+     * @param to end of the range, exclusive.
+     *
+     * @returns the chunks as `{from, to}` pairs, oldest first.
+     */
+    public static List<long[]> chunks(long from, long oldest, long to) {
+        return split(Math.max(from, oldest), to, Config.HISTORY_CHUNK_MILLIS);
+    }
+
+    /**
+     * tells whether all samples of a response lie in the range they were requested for.
+     *
+     * @param samples samples returned, may be null.
+     *
+     * @param from start of the requested range, inclusive.
+     *
+     * @param to end of the requested range, exclusive.
+     *
+     * @returns false if the server ignored the range.
+     */
+    static boolean withinRange(Sample[] samples, long from, long to) {
+        if (samples != null) {
+            for (Sample sample : samples) {
+                if (sample.getTimestamp() < from || sample.getTimestamp() >= to) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * downloads a range of a sensable's history, probing it with a single bounded
+     * request and splitting it into `chunks` only if the probe hits the limit.
+     *
+     * @param sensorId ID of the sensable.
+     *
+     * @param from start of the range, inclusive, 0 for the whole history.
+     *
+     * @param to end of the range, exclusive.
+     *
+     * @param listener listener receiving the history.
+     */
+    public void download(final String sensorId, final long from, final long to, final Listener listener) {
+        service.getSensorData(sensorId, from, to, probeLimit, new Callback<Sensable>() {
+            @Override
+            public void success(Sensable sensable, Response response) {
+                Sample[] samples = sensable.getSamples();
+                if (samples == null || samples.length < probeLimit) {
+                    listener.onComplete(sensable);
+                    return;
+                }
+                if (samples.length > probeLimit || !withinRange(samples, from, to)) {
+                    Log.w(TAG, "Server ignored the range of the probe of " + sensorId + ", not splitting");
+                    listener.onComplete(sensable);
+                    return;
+                }
+                long oldest = samples[0].getTimestamp();
+                for (Sample sample : samples) {
+                    oldest = Math.min(oldest, sample.getTimestamp());
+                }
+                Log.d(TAG, "Probe of " + sensorId + " returned " + samples.length + " samples, splitting");
+                download(sensorId, chunks(from, oldest, to), listener);
+            }
+
+            @Override
+            public void failure(RetrofitError retrofitError) {
+                listener.onFailure(retrofitError);
+            }
+        });
+    }
+
+    /**
+     * downloads the given ranges of a sensable's history.
+     *
+     * @param sensorId ID of the sensable.
+     *
+     * @param ranges `{from, to}` pairs to download.
+     *
+     * @param listener listener receiving the stitched history.
+     */
+    public void download(final String sensorId, final List<long[]> ranges, final Listener listener) {
+        new Download(sensorId, ranges, listener).start();
+    }
+
+    /**
+     * is the state of a single download. All callbacks arrive on the main thread, so no
+     * locking is needed.
+     */
+    private class Download {
+        private final String sensorId;
+        private final List<long[]> ranges;
+        private final Listener listener;
+        private final Sensable[] chunks;
+
+        private int next = 0;
+        private int completed = 0;
+        // Set once the listener has been called, later callbacks are ignored
+        private boolean finished = false;
+
+        Download(String sensorId, List<long[]> ranges, Listener listener) {
+            this.sensorId = sensorId;
+            this.ranges = ranges;
+            this.listener = listener;
+            this.chunks = new Sensable[ranges.size()];
+        }
+
+        void start() {
+            Log.d(TAG, "Downloading " + sensorId + " in " + ranges.size() + " chunks");
+            if (ranges.isEmpty()) {
+                listener.onComplete(stitch());
+                return;
+            }
+            while (!finished && next < ranges.size() && next < parallelism) {
+                fetch(next++);
+            }
+        }
+
+        private void fetch(final int index) {
+            final long[] range = ranges.get(index);
+            service.getSensorData(sensorId, range[0], range[1], new Callback<Sensable>() {
+                @Override
+                public void success(Sensable sensable, Response response) {
+                    if (finished) {
+                        return;
+                    }
+                    chunks[index] = sensable;
+                    completed++;
+                    if (!withinRange(sensable.getSamples(), range[0], range[1])) {
+                        Log.w(TAG, "Server ignored the range of a chunk of " + sensorId + ", stopping");
+                        finished = true;
+                        listener.onComplete(stitch());
+                    } else if (next < ranges.size()) {
+                        fetch(next++);
+                    } else if (completed == ranges.size()) {
+                        finished = true;
+                        listener.onComplete(stitch());
+                    }
+                }
+
+                @Override
+                public void failure(RetrofitError retrofitError) {
+                    if (!finished) {
+                        finished = true;
+                        listener.onFailure(retrofitError);
+                    }
+                }
+            });
+        }
+
+        private Sensable stitch() {
+            List<Sample> history = new ArrayList<Sample>();
+            Sensable result = new Sensable();
+            result.setSensorid(sensorId);
+            for (Sensable chunk : chunks) {
+                if (chunk == null) {
+                    continue;
+                }
+                // Metadata comes from the newest chunk
+                result.setName(chunk.getName());
+                result.setLocation(chunk.getLocation());
+                result.setSensortype(chunk.getSensortype());
+                result.setUnit(chunk.getUnit());
+                history = new ArrayList<Sample>(Arrays.asList(SampleHelper.mergeSamples(history, chunk.getSamples())));
+            }
+            result.setSamples(history.toArray(new Sample[history.size()]));
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+package io.sensable.client.network;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.text.TextUtils;
+import android.util.Log;
+import io.sensable.SensableService;
+import io.sensable.client.sqlite.SampleStore;
+import io.sensable.client.sqlite.SavedSensablesTable;
+import io.sensable.client.sqlite.SensableContentProvider;
+import io.sensable.model.Sample;
+import io.sensable.model.Sensable;
+import retrofit.RetrofitError;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * keeps the favourites up to date while they are on screen by long-polling sensable.io
+ * for new samples of the watched sensables. Each poll is held open by the server until
+ * new samples arrive or it times out, and only the new samples (deltas) are returned;
+ * they are appended to the local sample cache and become the favourite's last sample.
+ * The poll carries one cursor per sensable, the newest sample cached for it, so a
+ * favourite that has been quiet for a while is not skipped over by a busier one.
+ * The server is expected to answer an idle poll with an empty list before the client's
+ * read timeout (20s) expires.
+ */
+public class LiveUpdateChannel {
+
+    private static final String TAG = LiveUpdateChannel.class.getSimpleName();
+
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 60 * 1000;
+
+    private final Context context;
+    private final SensableService service;
+    private final SampleStore sampleStore;
+    // Newest sample timestamp per sensor ID, only touched by the poll thread
+    private final Map<String, Long> cursors = new HashMap<String, Long>();
+    private Thread thread;
+
+    /**
+     * @param context context used to reach the local store.
+     */
+    public LiveUpdateChannel(Context context) {
+        this(context, SensableClient.getInstance().getService(RequestDispatcher.Priority.PREFETCH), new SampleStore(context));
+    }
+
+    LiveUpdateChannel(Context context, SensableService service, SampleStore sampleStore) {
+        this.context = context.getApplicationContext();
+        this.service = service;
+        this.sampleStore = sampleStore;
+    }
+
+    /**
+     * starts watching the current favourites. Does nothing if the channel is running.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                poll(Thread.currentThread());
+            }
+        }, TAG);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * stops watching. A poll that is still open is abandoned and its result ignored.
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * returns whether a poll thread is running, i.e. whether `start()` would do nothing.
+     *
+     * @returns true while the channel is watching.
+     */
+    synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    private synchronized boolean isCurrent(Thread pollThread) {
+        return thread == pollThread;
+    }
+
+    /**
+     * forgets a poll thread that ended by itself, so the channel can be started again.
+     */
+    private synchronized void finish(Thread pollThread) {
+        if (thread == pollThread) {
+            thread = null;
+        }
+    }
+
+    private void poll(Thread pollThread) {
+        try {
+            long retryMillis = MIN_RETRY_MILLIS;
+            while (isCurrent(pollThread)) {
+                List<Sensable> favourites = loadFavourites();
+                if (favourites.isEmpty()) {
+                    Log.d(TAG, "No favourites to watch");
+                    return;
+                }
+                try {
+                    List<Sensable> updates = service.getUpdates(encodeCursors(favourites));
+                    if (!isCurrent(pollThread)) {
+                        return;
+                    }
+                    applyUpdates(updates);
+                    retryMillis = MIN_RETRY_MILLIS;
+                } catch (RetrofitError e) {
+                    if (e.getCause() instanceof SocketTimeoutException) {
+                        // An idle poll that outlived the read timeout, just poll again
+                        continue;
+                    }
+                    Log.e(TAG, "Long poll failed: " + e.toString());
+                    try {
+                        Thread.sleep(retryMillis);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                    retryMillis = Math.min(MAX_RETRY_MILLIS, retryMillis * 2);
+                }
+            }
+        } finally {
+            finish(pollThread);
+        }
+    }
+
+    List<Sensable> loadFavourites() {
+        List<Sensable> favourites = new ArrayList<Sensable>();
+        Cursor cursor = context.getContentResolver().query(SensableContentProvider.CONTENT_URI, null, null, null, null);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                favourites.add(SavedSensablesTable.getSensable(cursor));
+            }
+            cursor.close();
+        }
+        return favourites;
+    }
+
+    /**
+     * returns the cursors of the given favourites as `{sensorId}:{since}` pairs separated
+     * by commas. A favourite seen for the first time starts at its newest cached sample,
+     * or at the current time if nothing is cached, so only new samples are polled for.
+     *
+     * @param favourites favourites to watch.
+     *
+     * @returns the value of the `cursors` parameter of the poll.
+     */
+    String encodeCursors(List<Sensable> favourites) {
+        List<String> encoded = new ArrayList<String>(favourites.size());
+        for (Sensable favourite : favourites) {
+            Long cursor = cursors.get(favourite.getSensorid());
+            if (cursor == null) {
+                long latest = sampleStore.latestTimestamp(favourite.getSensorid());
+                cursor = latest > 0 ? latest : System.currentTimeMillis();
+                cursors.put(favourite.getSensorid(), cursor);
+            }
+            encoded.add(favourite.getSensorid() + ":" + cursor);
+        }
+        return TextUtils.join(",", encoded);
+    }
+
+    /**
+     * writes the new samples of each updated sensable into the sample cache, makes the
+     * newest one the favourite's last sample and moves its cursor past them.
+     *
+     * @param updates sensables with their new samples, as returned by the poll.
+     */
+    void applyUpdates(List<Sensable> updates) {
+        for (Sensable update : updates) {
+            Sample[] samples = update.getSamples();
+            if (samples == null || samples.length == 0) {
+                continue;
+            }
+            sampleStore.appendSamples(update.getSensorid(), samples);
+            Long cursor = cursors.get(update.getSensorid());
+            long newest = cursor == null ? 0 : cursor;
+            for (Sample sample : samples) {
+                newest = Math.max(newest, sample.getTimestamp());
+            }
+            cursors.put(update.getSensorid(), newest);
+            Log.d(TAG, update.getSensorid() + ": " + samples.length + " new samples");
+        }
+    }
+
+}
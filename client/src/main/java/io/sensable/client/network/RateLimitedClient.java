@@ -0,0 +1,78 @@
+package io.sensable.client.network;
+
+import android.util.Log;
+import retrofit.client.Client;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * is a `Client` decorator that smooths the traffic sent to sensable.io with a token
+ * bucket per priority class and endpoint. A burst of requests, e.g. many scheduled
+ * sensables uploading in the same tick, is spread out instead of tripping the server's
+ * throttling. Requests over the limit wait for their turn, they are never dropped. Each
+ * class has its own buckets, so background uploads never queue a request the user is
+ * waiting on behind them.
+ */
+public class RateLimitedClient implements Client {
+
+    private static final String TAG = RateLimitedClient.class.getSimpleName();
+
+    private static final double DEFAULT_RATE_PER_SECOND = 4;
+    private static final int DEFAULT_BURST = 8;
+
+    private final Client client;
+    private final Map<String, TokenBucket> buckets = new HashMap<String, TokenBucket>();
+
+    /**
+     * @param client client performing the actual HTTP requests.
+     */
+    public RateLimitedClient(Client client) {
+        this.client = client;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        long wait = getBucket(RequestDispatcher.getCurrentPriority(), request.getUrl()).reserve();
+        if (wait > 0) {
+            Log.d(TAG, "Delaying " + request.getMethod() + " " + request.getUrl() + " by " + wait + "ms");
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while rate limited");
+            }
+        }
+        return client.execute(request);
+    }
+
+    /**
+     * returns the bucket of a priority class and endpoint. Requests run outside of the
+     * dispatcher share the buckets of the background class.
+     */
+    private synchronized TokenBucket getBucket(RequestDispatcher.Priority priority, String url) {
+        String endpoint = SensableClient.endpointOf(url);
+        String key = (priority == null ? RequestDispatcher.Priority.BACKGROUND : priority) + " " + endpoint;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = newBucket(endpoint);
+            buckets.put(key, bucket);
+        }
+        return bucket;
+    }
+
+    private static TokenBucket newBucket(String endpoint) {
+        // Sample uploads come in bursts from the scheduler, listing is paged by the UI
+        if ("/sensed".equals(endpoint)) {
+            return new TokenBucket(2, 10);
+        } else if ("/sensable".equals(endpoint)) {
+            return new TokenBucket(1, 5);
+        }
+        return new TokenBucket(DEFAULT_RATE_PER_SECOND, DEFAULT_BURST);
+    }
+
+}
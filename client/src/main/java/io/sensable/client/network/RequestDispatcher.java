@@ -0,0 +1,260 @@
+package io.sensable.client.network;
+
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * schedules the HTTP work of the app by priority class. Every class has its own
+ * concurrency limit and queued work is always started in priority order, so a
+ * sensable opened by the user is fetched ahead of a large backlog of background
+ * uploads. Requests that are already on the wire cannot be interrupted; preemption
+ * happens when the next request is picked, and lower classes only start while no
+ * more urgent work is waiting and a slot is left for the UI.
+ */
+public class RequestDispatcher {
+
+    private static final String TAG = RequestDispatcher.class.getSimpleName();
+
+    /**
+     * is the priority class of a request, most urgent first.
+     */
+    public enum Priority {
+        /** requests the user is waiting on, e.g. opening a sensable. */
+        INTERACTIVE(4),
+        /** requests warming data the user is likely to look at next. */
+        PREFETCH(2),
+        /** sample uploads from the scheduler. */
+        BACKGROUND(2);
+
+        private final int maxConcurrent;
+
+        Priority(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+    }
+
+    // Lower priority classes may not use the last slots, they are kept free for the UI
+    private static final int MAX_REQUESTS = 5;
+    private static final int RESERVED_FOR_INTERACTIVE = 1;
+
+    private static RequestDispatcher sInstance = null;
+
+    // Tag of the request being submitted or run on the current thread, see RequestScope
+    private static final ThreadLocal<Object> sCurrentTag = new ThreadLocal<Object>();
+
+    // Priority class of the request run on the current thread
+    private static final ThreadLocal<Priority> sCurrentPriority = new ThreadLocal<Priority>();
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+    private final LinkedList<Task>[] queues;
+    private final int[] running;
+
+    /**
+     * is a queued unit of work together with the tag of the scope that submitted it.
+     */
+    private static class Task {
+        final Runnable runnable;
+        final Object tag;
+
+        Task(Runnable runnable, Object tag) {
+            this.runnable = runnable;
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * returns the dispatcher shared by all requests of the app.
+     *
+     * @returns the single `RequestDispatcher` instance.
+     */
+    public static synchronized RequestDispatcher getInstance() {
+        if (sInstance == null) {
+            sInstance = new RequestDispatcher();
+        }
+        return sInstance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RequestDispatcher() {
+        Priority[] priorities = Priority.values();
+        queues = new LinkedList[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            queues[i] = new LinkedList<Task>();
+        }
+        running = new int[priorities.length];
+    }
+
+    /**
+     * returns an `Executor` that submits its work to this dispatcher with the given
+     * priority. It is handed to Retrofit as the HTTP executor of a `RestAdapter`.
+     *
+     * @param priority priority class of the work run by the executor.
+     *
+     * @returns an executor queueing work under `priority`.
+     */
+    public Executor executorFor(final Priority priority) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                submit(priority, runnable);
+            }
+        };
+    }
+
+    /**
+     * returns the tag of the request that is being submitted or run on the calling
+     * thread.
+     *
+     * @returns the tag, or null outside of a tagged request.
+     */
+    public static Object getCurrentTag() {
+        return sCurrentTag.get();
+    }
+
+    /**
+     * returns the priority class of the request that is being run on the calling thread.
+     *
+     * @returns the priority, or null outside of the dispatcher.
+     */
+    public static Priority getCurrentPriority() {
+        return sCurrentPriority.get();
+    }
+
+    /**
+     * sets the tag attached to work submitted from the calling thread.
+     *
+     * @param tag tag to attach, or null to clear it.
+     *
+     * @returns the tag that was set before, so it can be restored.
+     */
+    static Object setCurrentTag(Object tag) {
+        Object previous = sCurrentTag.get();
+        sCurrentTag.set(tag);
+        return previous;
+    }
+
+    /**
+     * queues a unit of work and starts it as soon as its priority class allows. The work
+     * is tagged with the current tag of the calling thread.
+     *
+     * @param priority priority class of the work.
+     *
+     * @param runnable work to run on a network thread.
+     */
+    public synchronized void submit(Priority priority, Runnable runnable) {
+        queues[priority.ordinal()].addLast(new Task(runnable, sCurrentTag.get()));
+        promote();
+    }
+
+    /**
+     * drops all queued work carrying the given tag. Work that is already running is
+     * left to finish.
+     *
+     * @param tag tag of the work to drop.
+     *
+     * @returns the number of dropped units of work.
+     */
+    public synchronized int cancel(Object tag) {
+        int cancelled = 0;
+        for (LinkedList<Task> queue : queues) {
+            Iterator<Task> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().tag == tag) {
+                    iterator.remove();
+                    cancelled++;
+                }
+            }
+        }
+        if (cancelled > 0) {
+            Log.d(TAG, "Dropped " + cancelled + " queued requests");
+        }
+        return cancelled;
+    }
+
+    /**
+     * returns the number of requests of a class that are waiting for a slot.
+     *
+     * @param priority priority class to inspect.
+     *
+     * @returns the length of the queue of `priority`.
+     */
+    public synchronized int getQueued(Priority priority) {
+        return queues[priority.ordinal()].size();
+    }
+
+    /**
+     * returns the number of requests of a class that are currently running.
+     *
+     * @param priority priority class to inspect.
+     *
+     * @returns the number of running requests of `priority`.
+     */
+    public synchronized int getRunning(Priority priority) {
+        return running[priority.ordinal()];
+    }
+
+    /**
+     * starts queued work in priority order until the limits are reached. A class is
+     * only served once all more urgent queues are empty.
+     */
+    private synchronized void promote() {
+        for (Priority priority : Priority.values()) {
+            LinkedList<Task> queue = queues[priority.ordinal()];
+            while (!queue.isEmpty() && hasSlot(priority)) {
+                start(priority, queue.removeFirst());
+            }
+            if (!queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private boolean hasSlot(Priority priority) {
+        if (running[priority.ordinal()] >= priority.getMaxConcurrent()) {
+            return false;
+        }
+        if (priority == Priority.INTERACTIVE) {
+            return true;
+        }
+        int total = 0;
+        for (int count : running) {
+            total += count;
+        }
+        return total < MAX_REQUESTS - RESERVED_FOR_INTERACTIVE;
+    }
+
+    private void start(final Priority priority, final Task task) {
+        running[priority.ordinal()]++;
+        threads.execute(new Runnable() {
+            @Override
+            public void run() {
+                sCurrentTag.set(task.tag);
+                sCurrentPriority.set(priority);
+                try {
+                    task.runnable.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Request failed", e);
+                } finally {
+                    sCurrentTag.set(null);
+                    sCurrentPriority.set(null);
+                    finished(priority);
+                }
+            }
+        });
+    }
+
+    private synchronized void finished(Priority priority) {
+        running[priority.ordinal()]--;
+        promote();
+    }
+
+}
@@ -0,0 +1,124 @@
+package io.sensable.client.network;
+
+import io.sensable.SensableService;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * ties the requests of an activity or fragment to its lifecycle. Calls made through
+ * `getService()` are tagged with the scope; once `cancel()` is called, queued calls are
+ * dropped, responses of calls still on the wire are not decoded and no callback is
+ * delivered. A scope is created in `onStart` and cancelled in `onStop`.
+ */
+public class RequestScope {
+
+    private final SensableService service;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param priority priority class of the calls made through this scope.
+     */
+    public RequestScope(RequestDispatcher.Priority priority) {
+        final SensableService target = SensableClient.getInstance().getService(priority);
+        service = (SensableService) Proxy.newProxyInstance(SensableService.class.getClassLoader(),
+                new Class<?>[]{SensableService.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getDeclaringClass() == Object.class) {
+                            return method.invoke(RequestScope.this, args);
+                        }
+                        return invokeScoped(target, method, args);
+                    }
+                });
+    }
+
+    /**
+     * returns the service whose calls are bound to this scope.
+     *
+     * @returns a `SensableService` tagged with this scope.
+     */
+    public SensableService getService() {
+        return service;
+    }
+
+    /**
+     * cancels all calls of this scope. Queued calls are dropped and the callbacks of
+     * running calls are not invoked.
+     */
+    public void cancel() {
+        cancelled = true;
+        RequestDispatcher.getInstance().cancel(this);
+    }
+
+    /**
+     * returns whether this scope was cancelled.
+     *
+     * @returns true once `cancel()` has been called.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * returns whether the request running on the calling thread belongs to a cancelled
+     * scope, in which case its response need not be processed.
+     *
+     * @returns true if the current request was cancelled.
+     */
+    public static boolean isCurrentCancelled() {
+        Object tag = RequestDispatcher.getCurrentTag();
+        return tag instanceof RequestScope && ((RequestScope) tag).isCancelled();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object invokeScoped(SensableService target, Method method, Object[] args) throws Throwable {
+        boolean asynchronous = args != null && args.length > 0 && args[args.length - 1] instanceof Callback;
+        if (asynchronous) {
+            if (cancelled) {
+                return null;
+            }
+            args[args.length - 1] = new ScopedCallback<Object>((Callback<Object>) args[args.length - 1]);
+        }
+
+        Object previousTag = RequestDispatcher.setCurrentTag(this);
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            RequestDispatcher.setCurrentTag(previousTag);
+        }
+    }
+
+    /**
+     * is a `Callback` that is only delivered while its scope is not cancelled.
+     */
+    private class ScopedCallback<T> implements Callback<T> {
+        private final Callback<T> callback;
+
+        ScopedCallback(Callback<T> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void success(T t, Response response) {
+            if (!cancelled) {
+                callback.success(t, response);
+            }
+        }
+
+        @Override
+        public void failure(RetrofitError retrofitError) {
+            if (!cancelled) {
+                callback.failure(retrofitError);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package io.sensable.client.network;
+
+import android.util.Log;
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * is a `Client` decorator that makes calls to sensable.io resilient to a flaky or
+ * unavailable server. Network errors and 5xx responses of idempotent requests are
+ * retried with jittered exponential backoff, bounded per request and by a retry budget
+ * shared by all requests so retries can never multiply the load on a struggling server.
+ * A POST is only idempotent if it carries an `Idempotency-Key` header, any other POST
+ * may already have taken effect and is never retried. Each endpoint has a
+ * `CircuitBreaker` that fails requests fast while it is unhealthy. Long polls of
+ * `/updates` are never retried, and their read timeouts count as successes: the server
+ * held the poll open, and `LiveUpdateChannel` polls again by itself.
+ */
+public class ResilientClient implements Client {
+
+    private static final String TAG = ResilientClient.class.getSimpleName();
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_DELAY_MILLIS = 500;
+    private static final long MAX_DELAY_MILLIS = 8 * 1000;
+
+    // Every request earns a tenth of a retry, so at most ~10% of the traffic are retries
+    private static final double RETRY_TOKENS_PER_REQUEST = 0.1;
+    private static final double MAX_RETRY_TOKENS = 10;
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<String>(
+            Arrays.asList("GET", "HEAD", "PUT", "DELETE", "OPTIONS"));
+    private static final String LONG_POLL_ENDPOINT = "/updates";
+
+    private static final Map<String, CircuitBreaker> sBreakers = new HashMap<String, CircuitBreaker>();
+
+    private final Client client;
+    private final Random random = new Random();
+    private double retryTokens = MAX_RETRY_TOKENS;
+
+    /**
+     * @param client client performing the actual HTTP requests.
+     */
+    public ResilientClient(Client client) {
+        this.client = client;
+    }
+
+    /**
+     * returns the circuit breakers of all endpoints contacted so far, keyed by endpoint,
+     * so their state and transition counts can be reported.
+     *
+     * @returns an unmodifiable view of the breakers.
+     */
+    public static Map<String, CircuitBreaker> getCircuitBreakers() {
+        synchronized (sBreakers) {
+            return Collections.unmodifiableMap(new HashMap<String, CircuitBreaker>(sBreakers));
+        }
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        CircuitBreaker breaker = getBreaker(request.getUrl());
+        boolean longPoll = LONG_POLL_ENDPOINT.equals(breaker.getEndpoint());
+        boolean retryable = !longPoll && isIdempotent(request);
+        depositRetryToken();
+
+        int attempt = 1;
+        while (true) {
+            if (!breaker.allowRequest()) {
+                throw new CircuitOpenException(breaker.getEndpoint());
+            }
+
+            Response response = null;
+            IOException error = null;
+            boolean failed = true;
+            try {
+                response = client.execute(request);
+                failed = response.getStatus() >= 500;
+            } catch (IOException e) {
+                error = e;
+                failed = !(longPoll && e instanceof SocketTimeoutException);
+            } finally {
+                // Also reached on a runtime error, which must not leave a half open trial in flight
+                if (failed) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+            }
+
+            if (!failed) {
+                if (error != null) {
+                    throw error;
+                }
+                return response;
+            }
+
+            if (!retryable || attempt >= MAX_ATTEMPTS || RequestScope.isCurrentCancelled() || !withdrawRetryToken()) {
+                if (error != null) {
+                    throw error;
+                }
+                return response;
+            }
+            if (response != null) {
+                discardBody(response);
+            }
+
+            long delay = backoff(attempt);
+            Log.d(TAG, "Retrying " + request.getMethod() + " " + request.getUrl() + " in " + delay + "ms");
+            sleep(delay);
+            attempt++;
+        }
+    }
+
+    /**
+     * tells whether a request may be sent again without side effects if its first
+     * attempt reached the server.
+     *
+     * @param request request to check.
+     *
+     * @returns true for idempotent methods and for requests with an idempotency key.
+     */
+    static boolean isIdempotent(Request request) {
+        if (IDEMPOTENT_METHODS.contains(request.getMethod())) {
+            return true;
+        }
+        for (Header header : request.getHeaders()) {
+            if (IDEMPOTENCY_KEY_HEADER.equalsIgnoreCase(header.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * computes the delay before a retry using "full jitter": a random delay between
+     * zero and an exponentially growing cap, which spreads the retries of many clients.
+     *
+     * @param attempt number of the attempt that just failed, starting at 1.
+     *
+     * @returns the delay in milliseconds.
+     */
+    private long backoff(int attempt) {
+        long cap = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << (attempt - 1));
+        synchronized (random) {
+            return (long) (random.nextDouble() * cap);
+        }
+    }
+
+    private synchronized void depositRetryToken() {
+        retryTokens = Math.min(MAX_RETRY_TOKENS, retryTokens + RETRY_TOKENS_PER_REQUEST);
+    }
+
+    private synchronized boolean withdrawRetryToken() {
+        if (retryTokens < 1) {
+            Log.d(TAG, "Retry budget exhausted");
+            return false;
+        }
+        retryTokens--;
+        return true;
+    }
+
+    private static CircuitBreaker getBreaker(String url) {
+        String endpoint = SensableClient.endpointOf(url);
+        synchronized (sBreakers) {
+            CircuitBreaker breaker = sBreakers.get(endpoint);
+            if (breaker == null) {
+                breaker = new CircuitBreaker(endpoint);
+                sBreakers.put(endpoint, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    private static void discardBody(Response response) {
+        if (response.getBody() == null) {
+            return;
+        }
+        try {
+            response.getBody().in().close();
+        } catch (IOException e) {
+            // Nothing left to clean up
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+}
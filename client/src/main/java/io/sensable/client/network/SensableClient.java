@@ -0,0 +1,103 @@
+package io.sensable.client.network;
+
+import android.net.Uri;
+import com.google.gson.Gson;
+import io.sensable.SensableService;
+import retrofit.RestAdapter;
+import retrofit.android.MainThreadExecutor;
+import retrofit.client.OkClient;
+import retrofit.converter.GsonConverter;
+
+import java.net.CookieHandler;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * hands out the `SensableService` instances used throughout the app. There is one
+ * service per priority class and all of them share the `RequestDispatcher`, so
+ * interactive and background traffic are ordered against each other instead of
+ * competing for the network.
+ */
+public class SensableClient {
+
+    public static final String ENDPOINT = "http://sensable.io";
+
+    private static SensableClient sInstance = null;
+
+    private final GzipRequestClient client;
+    private final EnumMap<RequestDispatcher.Priority, SensableService> services =
+            new EnumMap<RequestDispatcher.Priority, SensableService>(RequestDispatcher.Priority.class);
+
+    /**
+     * returns the client shared by the app.
+     *
+     * @returns the single `SensableClient` instance.
+     */
+    public static synchronized SensableClient getInstance() {
+        if (sInstance == null) {
+            sInstance = new SensableClient();
+        }
+        return sInstance;
+    }
+
+    private SensableClient() {
+        //TODO: Remove this once API doesn't use cookies
+        CookieManager cookieManager = new CookieManager();
+        cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
+        CookieHandler.setDefault(cookieManager);
+
+        RequestDispatcher dispatcher = RequestDispatcher.getInstance();
+        CancellableConverter converter = new CancellableConverter(new GsonConverter(new Gson()));
+        // Bodies are compressed once, retries are rate limited as well and the breaker
+        // fails fast before any waiting
+        client = new GzipRequestClient(new ResilientClient(new RateLimitedClient(new OkClient())));
+        for (RequestDispatcher.Priority priority : RequestDispatcher.Priority.values()) {
+            RestAdapter restAdapter = new RestAdapter.Builder()
+                    .setLogLevel(RestAdapter.LogLevel.FULL)
+                    .setEndpoint(ENDPOINT)
+                    .setClient(client)
+                    .setExecutors(dispatcher.executorFor(priority), new MainThreadExecutor())
+                    .setConverter(converter)
+                    .build();
+            services.put(priority, restAdapter.create(SensableService.class));
+        }
+    }
+
+    /**
+     * returns the client decorator compressing upload bodies, so its compression level
+     * can be tuned.
+     *
+     * @returns the gzip client shared by all services.
+     */
+    public GzipRequestClient getGzipClient() {
+        return client;
+    }
+
+    /**
+     * returns the endpoint a URL belongs to, identified by the first path segment, e.g.
+     * `/sensed` for all sample uploads.
+     *
+     * @param url URL of a request.
+     *
+     * @returns the endpoint of the request.
+     */
+    static String endpointOf(String url) {
+        List<String> segments = Uri.parse(url).getPathSegments();
+        return segments.isEmpty() ? "/" : "/" + segments.get(0);
+    }
+
+    /**
+     * returns the service whose asynchronous calls are dispatched with the given
+     * priority. Blocking calls run on the calling thread and are not reordered.
+     *
+     * @param priority priority class of the calls made through the service.
+     *
+     * @returns a `SensableService` bound to `priority`.
+     */
+    public SensableService getService(RequestDispatcher.Priority priority) {
+        return services.get(priority);
+    }
+
+}
@@ -0,0 +1,328 @@
+package io.sensable.client.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * is the result of an asynchronous request that can be combined with others. Blocking
+ * service calls are submitted to the `RequestDispatcher`, so a fan-out over many
+ * sensables runs with the concurrency of its priority class, and `allOf`, `zip` and
+ * `withTimeout` give the whole operation a single completion point. A future completes
+ * once; later completions, e.g. a response arriving after its timeout, are ignored.
+ *
+ * @param <T> type of the result.
+ */
+public class SensableFuture<T> {
+
+    /**
+     * receives the outcome of a future.
+     *
+     * @param <T> type of the result.
+     */
+    public interface Listener<T> {
+        void onSuccess(T value);
+
+        void onFailure(Exception e);
+    }
+
+    /**
+     * combines the results of two futures.
+     */
+    public interface Combiner<A, B, R> {
+        R combine(A a, B b);
+    }
+
+    /**
+     * runs listeners on the thread that completes the future.
+     */
+    public static final Executor SAME_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private static final ScheduledExecutorService sTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SensableFuture-timer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final List<Runnable> pending = new ArrayList<Runnable>();
+    private boolean done = false;
+    private T value;
+    private Exception error;
+
+    /**
+     * runs a blocking call with the given priority.
+     *
+     * @param priority priority class the call is dispatched with.
+     *
+     * @param call blocking call, e.g. of a `SensableService` method.
+     *
+     * @returns a future completed with the result of the call.
+     */
+    public static <T> SensableFuture<T> submit(RequestDispatcher.Priority priority, final Callable<T> call) {
+        final SensableFuture<T> future = new SensableFuture<T>();
+        RequestDispatcher.getInstance().submit(priority, new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    // Cancelled or timed out while queued
+                    return;
+                }
+                try {
+                    future.complete(call.call());
+                } catch (Exception e) {
+                    future.fail(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * returns a future of all results, in the order of the given futures. It fails as
+     * soon as one of them fails.
+     *
+     * @param futures futures to wait for.
+     *
+     * @returns the future of the list of results.
+     */
+    public static <T> SensableFuture<List<T>> allOf(List<SensableFuture<T>> futures) {
+        return collect(futures, true);
+    }
+
+    /**
+     * returns a future of all results, in the order of the given futures, where failed
+     * futures contribute null. It never fails.
+     *
+     * @param futures futures to wait for.
+     *
+     * @returns the future of the list of results.
+     */
+    public static <T> SensableFuture<List<T>> successfulOf(List<SensableFuture<T>> futures) {
+        return collect(futures, false);
+    }
+
+    private static <T> SensableFuture<List<T>> collect(final List<SensableFuture<T>> futures, final boolean failFast) {
+        final SensableFuture<List<T>> all = new SensableFuture<List<T>>();
+        if (futures.isEmpty()) {
+            all.complete(Collections.<T>emptyList());
+            return all;
+        }
+        final List<T> results = new ArrayList<T>(Collections.<T>nCopies(futures.size(), null));
+        final AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            final int index = i;
+            futures.get(i).addListener(new Listener<T>() {
+                @Override
+                public void onSuccess(T value) {
+                    synchronized (results) {
+                        results.set(index, value);
+                    }
+                    countDown();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    if (failFast) {
+                        all.fail(e);
+                    } else {
+                        countDown();
+                    }
+                }
+
+                private void countDown() {
+                    if (remaining.decrementAndGet() == 0) {
+                        synchronized (results) {
+                            all.complete(new ArrayList<T>(results));
+                        }
+                    }
+                }
+            }, SAME_THREAD);
+        }
+        return all;
+    }
+
+    /**
+     * returns a future of the combined results of two futures. It fails as soon as one
+     * of them fails.
+     *
+     * @param a first future.
+     *
+     * @param b second future.
+     *
+     * @param combiner function combining both results.
+     *
+     * @returns the future of the combined result.
+     */
+    public static <A, B, R> SensableFuture<R> zip(final SensableFuture<A> a, final SensableFuture<B> b, final Combiner<A, B, R> combiner) {
+        final SensableFuture<R> zipped = new SensableFuture<R>();
+        final AtomicInteger remaining = new AtomicInteger(2);
+        Listener<Object> listener = new Listener<Object>() {
+            @Override
+            public void onSuccess(Object value) {
+                if (remaining.decrementAndGet() == 0) {
+                    try {
+                        zipped.complete(combiner.combine(a.value, b.value));
+                    } catch (Exception e) {
+                        zipped.fail(e);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                zipped.fail(e);
+            }
+        };
+        a.addUntypedListener(listener);
+        b.addUntypedListener(listener);
+        return zipped;
+    }
+
+    /**
+     * returns a future that fails with a `TimeoutException` if this one has not completed
+     * within the given time. Timing out also completes this future, so a call that has
+     * not started yet is skipped; one on the wire runs on unless its `RequestScope` is
+     * cancelled.
+     *
+     * @param millis time allowed, in milliseconds.
+     *
+     * @returns the future with the timeout.
+     */
+    public SensableFuture<T> withTimeout(long millis) {
+        sTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fail(new TimeoutException("Timed out"));
+            }
+        }, millis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * completes the future with a result.
+     *
+     * @param value result of the operation.
+     *
+     * @returns true if this call completed the future.
+     */
+    public boolean complete(T value) {
+        return finish(value, null);
+    }
+
+    /**
+     * completes the future with an error.
+     *
+     * @param e error of the operation.
+     *
+     * @returns true if this call completed the future.
+     */
+    public boolean fail(Exception e) {
+        return finish(null, e);
+    }
+
+    /**
+     * cancels the future. A call that has not started yet is skipped; one on the wire
+     * still finishes, but its result is ignored.
+     *
+     * @returns true if the future was still running.
+     */
+    public boolean cancel() {
+        return fail(new CancellationException());
+    }
+
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * adds a listener that is notified once the future completes, immediately if it
+     * already has.
+     *
+     * @param listener listener receiving the outcome.
+     *
+     * @param executor executor the listener runs on, e.g. a `MainThreadExecutor`.
+     */
+    public void addListener(final Listener<T> listener, final Executor executor) {
+        Runnable notification = new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (error == null) {
+                            listener.onSuccess(value);
+                        } else {
+                            listener.onFailure(error);
+                        }
+                    }
+                });
+            }
+        };
+        synchronized (this) {
+            if (!done) {
+                pending.add(notification);
+                return;
+            }
+        }
+        notification.run();
+    }
+
+    /**
+     * blocks until the future completes.
+     *
+     * @returns the result.
+     *
+     * @throws Exception the error the future failed with.
+     */
+    public synchronized T get() throws Exception {
+        while (!done) {
+            wait();
+        }
+        if (error != null) {
+            throw error;
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addUntypedListener(Listener<Object> listener) {
+        addListener((Listener<T>) (Listener<?>) listener, SAME_THREAD);
+    }
+
+    private boolean finish(T value, Exception error) {
+        List<Runnable> notifications;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.value = value;
+            this.error = error;
+            done = true;
+            notifyAll();
+            notifications = new ArrayList<Runnable>(pending);
+            pending.clear();
+        }
+        for (Runnable notification : notifications) {
+            notification.run();
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,145 @@
+package io.sensable.client.network;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import io.sensable.SensableService;
+import io.sensable.client.settings.Config;
+import io.sensable.model.Statistics;
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Request;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * takes the network work of a cold start off the critical path. While the first screen
+ * is being inflated the connection to sensable.io is opened (DNS, TCP) with a cheap
+ * request, then the favourites are refreshed through the `FavouritesRefresher`, which
+ * the favourites list joins instead of fetching them a second time. Work nobody is
+ * waiting on, like the statistics of the About screen, only starts once the refresh is
+ * done. A trace of every phase is logged.
+ */
+public class StartupOrchestrator {
+
+    private static final String TAG = StartupOrchestrator.class.getSimpleName();
+
+    private static StartupOrchestrator sInstance = null;
+
+    private final Context context;
+    private final SensableService service;
+    private final RequestDispatcher dispatcher;
+
+    private boolean started = false;
+    private long startedAt;
+    private volatile long firstFrameAt;
+    private volatile Statistics statistics;
+
+    /**
+     * returns the orchestrator of the app.
+     *
+     * @param context context used to reach the local store.
+     *
+     * @returns the single `StartupOrchestrator` instance.
+     */
+    public static synchronized StartupOrchestrator getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new StartupOrchestrator(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private StartupOrchestrator(Context context) {
+        this.context = context;
+        this.service = SensableClient.getInstance().getService(RequestDispatcher.Priority.PREFETCH);
+        this.dispatcher = RequestDispatcher.getInstance();
+    }
+
+    /**
+     * starts the startup work. Only the first call per process does anything, so it is
+     * safe to call from `onCreate` of the launcher activity.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        startedAt = SystemClock.elapsedRealtime();
+        dispatcher.submit(RequestDispatcher.Priority.PREFETCH, new Runnable() {
+            @Override
+            public void run() {
+                warmUp();
+                refreshFavourites();
+            }
+        });
+    }
+
+    /**
+     * records that the first frame of the launcher activity has been drawn.
+     */
+    public void onFirstFrame() {
+        if (firstFrameAt == 0) {
+            firstFrameAt = SystemClock.elapsedRealtime();
+            trace("first frame");
+        }
+    }
+
+    /**
+     * returns the statistics fetched after startup.
+     *
+     * @returns the statistics, or null if they have not been fetched (yet).
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    private void warmUp() {
+        long begin = SystemClock.elapsedRealtime();
+        try {
+            Request request = new Request("HEAD", SensableClient.ENDPOINT + "/", Collections.<Header>emptyList(), null);
+            SensableClient.getInstance().getGzipClient().execute(request);
+            trace("connection warm, took " + (SystemClock.elapsedRealtime() - begin) + "ms");
+        } catch (IOException e) {
+            // The refresh opens the connection itself
+            Log.e(TAG, "Warm up failed: " + e.toString());
+        }
+    }
+
+    private void refreshFavourites() {
+        FavouritesRefresher.getInstance(context).refresh(Config.FAVOURITES_REFRESH_DEADLINE_MILLIS,
+                new FavouritesRefresher.Listener() {
+                    @Override
+                    public void onRefreshed(int refreshed, int total) {
+                        trace(refreshed + " of " + total + " favourites refreshed");
+                        deferNonCritical();
+                    }
+                });
+    }
+
+    /**
+     * runs the work nobody is waiting on at startup.
+     */
+    private void deferNonCritical() {
+        dispatcher.submit(RequestDispatcher.Priority.PREFETCH, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    statistics = service.getStatistics();
+                    trace("statistics fetched");
+                } catch (RetrofitError e) {
+                    Log.e(TAG, "Statistics failed: " + e.toString());
+                }
+                // Without the orchestrator none of this would start before the first frame
+                long doneAt = SystemClock.elapsedRealtime();
+                long overlapMillis = (firstFrameAt > 0 ? Math.min(firstFrameAt, doneAt) : doneAt) - startedAt;
+                trace("startup network done, " + overlapMillis + "ms of it overlapped with drawing the first frame");
+            }
+        });
+    }
+
+    private void trace(String event) {
+        Log.d(TAG, "+" + (SystemClock.elapsedRealtime() - startedAt) + "ms " + event);
+    }
+
+}
@@ -0,0 +1,46 @@
+package io.sensable.client.network;
+
+/**
+ * is a token bucket holding up to `burst` tokens that refill at `ratePerSecond`. Each
+ * request takes one token. When the bucket is empty the request reserves a future
+ * token instead of being rejected, so requests are queued in arrival order and leave
+ * at the configured rate.
+ */
+public class TokenBucket {
+
+    private final double ratePerSecond;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param ratePerSecond sustained number of requests per second.
+     *
+     * @param burst number of requests that may be sent back to back after a quiet period.
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * takes a token, reserving one from the future if the bucket is empty.
+     *
+     * @returns how many milliseconds the caller has to wait before its token is due, 0 if
+     * it may proceed immediately.
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * ratePerSecond);
+        lastRefill = now;
+        tokens--;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-tokens / ratePerSecond * 1000);
+    }
+
+}
@@ -4,6 +4,7 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
+import io.sensable.client.upload.OutboundDrainService;
 
 /**
  * Created by simonmadine on 19/07/2014.
@@ -39,5 +40,7 @@ public class BootReceiver extends BroadcastReceiver {
         Log.d(TAG, "Starting AlarmManager at Boot (onReceive)");
         ScheduleHelper scheduleHelper = new ScheduleHelper(context);
         scheduleHelper.startScheduler();
+        // Upload whatever was captured but not sent before the device went down
+        OutboundDrainService.start(context);
     }
 }
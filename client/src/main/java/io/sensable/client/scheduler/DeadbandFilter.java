@@ -0,0 +1,57 @@
+package io.sensable.client.scheduler;
+
+import io.sensable.model.ScheduledSensable;
+
+/**
+ * decides whether a reading of a scheduled sensable is worth uploading. A reading
+ * within the deadband of the last sent value, absolute or relative to it, carries no
+ * news and is skipped, unless the heartbeat interval has passed since the last upload,
+ * so sensable.io still sees that the sensor is alive.
+ */
+public class DeadbandFilter {
+
+    /**
+     * returns whether a reading should be uploaded.
+     *
+     * @param scheduledSensable sensable the reading belongs to, with its deadband
+     * configuration and last sent value.
+     *
+     * @param value the reading.
+     *
+     * @param now time of the reading in milliseconds since the epoch.
+     *
+     * @returns true to upload the reading, false to skip it.
+     */
+    public static boolean shouldSend(ScheduledSensable scheduledSensable, double value, long now) {
+        if (scheduledSensable.getLastSentAt() == 0) {
+            return true;
+        }
+        double absolute = scheduledSensable.getDeadbandAbsolute();
+        double relative = scheduledSensable.getDeadbandRelative();
+        if (absolute <= 0 && relative <= 0) {
+            return true;
+        }
+        long heartbeat = scheduledSensable.getHeartbeatMillis();
+        if (heartbeat > 0 && now - scheduledSensable.getLastSentAt() >= heartbeat) {
+            return true;
+        }
+        double lastSent = scheduledSensable.getLastSentValue();
+        double threshold = Math.max(absolute, relative * Math.abs(lastSent));
+        return Math.abs(value - lastSent) > threshold;
+    }
+
+    /**
+     * records that a reading has been sent, it becomes the reference for the deadband.
+     *
+     * @param scheduledSensable sensable the reading belongs to.
+     *
+     * @param value the reading.
+     *
+     * @param now time of the reading in milliseconds since the epoch.
+     */
+    public static void markSent(ScheduledSensable scheduledSensable, double value, long now) {
+        scheduledSensable.setLastSentValue(value);
+        scheduledSensable.setLastSentAt(now);
+    }
+
+}
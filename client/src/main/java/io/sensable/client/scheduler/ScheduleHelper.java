@@ -7,7 +7,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.util.Log;
+import io.sensable.client.settings.Config;
 import io.sensable.client.sqlite.SavedSensablesTable;
 import io.sensable.client.sqlite.ScheduledSensableContentProvider;
 import io.sensable.client.sqlite.ScheduledSensablesTable;
@@ -15,6 +17,9 @@ import io.sensable.client.sqlite.SensableContentProvider;
 import io.sensable.model.ScheduledSensable;
 import io.sensable.model.Sensable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Created by madine on 15/07/14.
  */
@@ -27,6 +32,10 @@ import io.sensable.model.Sensable;
 public class ScheduleHelper {
 
     private static final String TAG = ScheduleHelper.class.getSimpleName();
+
+    // Window of the alarm armed last by this process, 0 if none is known to be pending
+    private static long sArmedWindowStart = 0;
+    private static long sArmedWindowEnd = 0;
     private Context context;
     private AlarmManager scheduler;
     private static final int PENDING_INTENT_ID = 12345;
@@ -37,21 +46,132 @@ public class ScheduleHelper {
     }
 
     /**
-     * sets up a scheduled task using AlarmManager if it doesn't already exist, or updates
-     * the existing one if it does.
+     * arms the alarm for the next wake-up planned for the scheduled sensables, replacing
+     * the alarm set before, so there is only ever one pending wake-up. Sensables that
+     * were never sampled are due right away. If the alarm armed last is still pending for
+     * the same window, the schedule has not changed and it is left alone.
      */
     public void startScheduler() {
-        Intent intent = new Intent(context.getApplicationContext(), ScheduledSensableService.class);
-        boolean alarmUp = (PendingIntent.getBroadcast(context.getApplicationContext(), PENDING_INTENT_ID, intent, PendingIntent.FLAG_NO_CREATE) != null);
+        WakeupPlanner planner = loadWakeupPlanner();
+        if (planner.size() == 0) {
+            Log.d(TAG, "Nothing scheduled, no alarm needed.");
+            return;
+        }
+        long windowStart = planner.nextWindowStart();
+        long windowEnd = planner.nextWakeup();
+        if (isArmed(windowStart, windowEnd)) {
+            Log.d(TAG, "Schedule unchanged, keeping the pending alarm.");
+            return;
+        }
+        armAlarm(windowStart, windowEnd);
+    }
+
+    private static synchronized boolean isArmed(long windowStart, long windowEnd) {
+        // An alarm whose window has passed has fired, or is about to
+        return windowStart == sArmedWindowStart && windowEnd == sArmedWindowEnd
+                && windowEnd > System.currentTimeMillis();
+    }
+
+    private static synchronized void setArmed(long windowStart, long windowEnd) {
+        sArmedWindowStart = windowStart;
+        sArmedWindowEnd = windowEnd;
+    }
+
+    /**
+     * builds the wake-up plan of all scheduled sensables.
+     *
+     * @returns a `WakeupPlanner` holding every scheduled sensable.
+     */
+    public WakeupPlanner loadWakeupPlanner() {
+        return new WakeupPlanner(loadWakeupEntries());
+    }
+
+    /**
+     * returns the planner entries of all scheduled sensables, e.g. to evaluate the
+     * schedule with `WakeupPlanner.wakeupsPerHour`.
+     *
+     * @returns one entry per scheduled sensable.
+     */
+    public List<WakeupPlanner.Entry> loadWakeupEntries() {
+        List<WakeupPlanner.Entry> entries = new ArrayList<WakeupPlanner.Entry>();
+        Cursor cursor = getScheduledTasks();
+        try {
+            while (cursor.moveToNext()) {
+                entries.add(entryOf(ScheduledSensablesTable.getScheduledSensable(cursor)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return entries;
+    }
+
+    /**
+     * returns the planner entry of a sensable, with its defaults applied.
+     *
+     * @param scheduledSensable the sensable.
+     *
+     * @returns the entry for its next sample.
+     */
+    public static WakeupPlanner.Entry entryOf(ScheduledSensable scheduledSensable) {
+        return new WakeupPlanner.Entry(scheduledSensable.getId(), scheduledSensable.getNextDueAt(),
+                intervalOf(scheduledSensable), toleranceOf(scheduledSensable));
+    }
 
-        if (alarmUp) {
-            Log.d(TAG, "AlarmManager already running. Exit without recreating it.");
+    /**
+     * sets the single scheduler alarm, replacing the one set before. From KitKat on the
+     * system may fire it anywhere within the window to batch it with other alarms;
+     * before, alarms are exact and it fires at the end of the window.
+     *
+     * @param windowStart earliest time to wake up at, in milliseconds since the epoch.
+     *
+     * @param windowEnd latest time to wake up at. Times in the past wake up right away.
+     */
+    public void armAlarm(long windowStart, long windowEnd) {
+        long now = System.currentTimeMillis();
+        long end = Math.max(now, windowEnd);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            long start = Math.min(end, Math.max(now, windowStart));
+            scheduler.setWindow(AlarmManager.RTC_WAKEUP, start, end - start, getSchedulerIntent());
         } else {
-            // Create scheduled task if it doesn't already exist.
-            Log.d(TAG, "AlarmManager not running. Create it now.");
-            PendingIntent scheduledIntent = PendingIntent.getService(context.getApplicationContext(), PENDING_INTENT_ID, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-            scheduler.setInexactRepeating(AlarmManager.RTC_WAKEUP, System.currentTimeMillis(), AlarmManager.INTERVAL_FIFTEEN_MINUTES, scheduledIntent);
+            scheduler.set(AlarmManager.RTC_WAKEUP, end, getSchedulerIntent());
         }
+        setArmed(windowStart, windowEnd);
+        Log.d(TAG, "Next wake-up in " + (Math.max(0, windowStart - now) / 1000) + "s to " + ((end - now) / 1000) + "s");
+    }
+
+    /**
+     * returns the sampling interval of a sensable.
+     *
+     * @param scheduledSensable the sensable.
+     *
+     * @returns its own interval, or `Config.DEFAULT_SAMPLING_INTERVAL_MILLIS` if it has none.
+     */
+    public static long intervalOf(ScheduledSensable scheduledSensable) {
+        return scheduledSensable.getIntervalMillis() > 0
+                ? scheduledSensable.getIntervalMillis()
+                : Config.DEFAULT_SAMPLING_INTERVAL_MILLIS;
+    }
+
+    /**
+     * returns the tolerance of a sensable, at most half its interval so consecutive
+     * samples never merge.
+     *
+     * @param scheduledSensable the sensable.
+     *
+     * @returns its own tolerance, or `Config.DEFAULT_SAMPLING_TOLERANCE_FRACTION` of its
+     * interval if it has none.
+     */
+    public static long toleranceOf(ScheduledSensable scheduledSensable) {
+        long interval = intervalOf(scheduledSensable);
+        long tolerance = scheduledSensable.getToleranceMillis() > 0
+                ? scheduledSensable.getToleranceMillis()
+                : (long) (interval * Config.DEFAULT_SAMPLING_TOLERANCE_FRACTION);
+        return Math.min(tolerance, interval / 2);
+    }
+
+    private PendingIntent getSchedulerIntent() {
+        Intent intent = new Intent(context, ScheduledSensableService.class);
+        return PendingIntent.getService(context, PENDING_INTENT_ID, intent, PendingIntent.FLAG_UPDATE_CURRENT);
     }
 
     /**
@@ -109,9 +229,8 @@ public class ScheduleHelper {
      */
     public boolean stopSchedulerIfNotNeeded() {
         if (countScheduledTasks() == 0) {
-            Intent intent = new Intent(context, ScheduledSensableService.class);
-            PendingIntent scheduledIntent = PendingIntent.getService(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-            scheduler.cancel(scheduledIntent);
+            scheduler.cancel(getSchedulerIntent());
+            setArmed(0, 0);
         }
         return true;
     }
@@ -3,7 +3,6 @@ package io.sensable.client.scheduler;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
@@ -11,23 +10,30 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.location.Location;
 import android.location.LocationManager;
+import android.os.Handler;
 import android.os.IBinder;
 import android.util.Log;
-import io.sensable.SensableService;
-import io.sensable.client.R;
-import io.sensable.client.SensableUser;
+import io.sensable.client.CredentialProvider;
 import io.sensable.client.SensorHelper;
+import io.sensable.client.network.SensableClient;
+import io.sensable.client.settings.Config;
 import io.sensable.client.sqlite.ScheduledSensablesTable;
+import io.sensable.client.upload.AndroidDeviceConditions;
+import io.sensable.client.upload.DeferredUploadGate;
+import io.sensable.client.upload.IdempotencyKey;
+import io.sensable.client.upload.OutboundDrainService;
+import io.sensable.client.upload.OutboundQueue;
+import io.sensable.client.upload.UploadLedger;
+import io.sensable.client.upload.UploadPlan;
+import io.sensable.client.upload.UploadPolicy;
+import io.sensable.client.upload.UploadStats;
 import io.sensable.model.Sample;
-import io.sensable.model.SampleResponse;
-import io.sensable.model.SampleSender;
 import io.sensable.model.ScheduledSensable;
-import retrofit.Callback;
-import retrofit.RestAdapter;
-import retrofit.RetrofitError;
-import retrofit.client.Response;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * is an Android service that extends Service and is responsible for sampling sensors
@@ -43,8 +49,12 @@ public class ScheduledSensableService extends Service {
 
     private static final String TAG = ScheduledSensableService.class.getSimpleName();
 
+    private static final WindowAggregator.Aggregate SAMPLING_AGGREGATE = WindowAggregator.Aggregate.valueOf(Config.SAMPLING_AGGREGATE);
+
     private SensorManager sensorManager = null;
     private Sensor sensor = null;
+    // Next scheduler wake-up armed by the last call to takeDueSensables, 0 if none
+    private long nextWakeup = 0;
 
     /**
      * starts a service, initializes a sensor manager, and registers listeners on sensors
@@ -75,26 +85,87 @@ public class ScheduledSensableService extends Service {
         sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
 
         ScheduleHelper scheduleHelper = new ScheduleHelper(this);
-        Cursor cursor = scheduleHelper.getScheduledTasks();
+        new UploadLedger(this).prune();
+
+        UploadPlan uploadPlan = new UploadPolicy().plan(new AndroidDeviceConditions(this));
+        Log.d(TAG, "Upload plan: " + uploadPlan);
+        SensableClient.getInstance().getGzipClient().setCompressionLevel(uploadPlan.getCompressionLevel());
+
+        // Only the sensables whose interval has passed are sampled on this wake-up
+        long now = System.currentTimeMillis();
+        List<ScheduledSensable> due = takeDueSensables(scheduleHelper, now);
+
+        // The queue, including this tick's readings, waits for the next wake-up unless
+        // that would hold it back longer than the plan allows
+        OutboundQueue outboundQueue = new OutboundQueue(this);
+        long queued = outboundQueue.size();
+        long oldest = queued > 0 ? Math.min(now, outboundQueue.oldestEnqueuedAt()) : now;
+        boolean flush = uploadPlan.isFlushDue(queued + due.size(), oldest, nextWakeup);
+        if (flush && queued > 0) {
+            OutboundDrainService.start(this);
+        }
 
-        while (cursor.moveToNext()) {
-            Log.d(TAG, "Adding one sampler");
-            // Load the sensable from the DB
-            final ScheduledSensable scheduledSensable = ScheduledSensablesTable.getScheduledSensable(cursor);
+        // All readings of this tick go out in one request
+        TickBatcher tickBatcher = new TickBatcher(this, due.size(), Config.TICK_COLLECTION_DEADLINE_MILLIS, uploadPlan, flush);
 
+        for (ScheduledSensable scheduledSensable : due) {
+            Log.d(TAG, "Adding one sampler");
             // Register the listener on the sensor
             List<Sensor> sensorList = sensorManager.getSensorList(Sensor.TYPE_ALL);
             Sensor sensor = sensorManager.getDefaultSensor(scheduledSensable.getInternalSensorId());
-            sensorManager.registerListener(getListener(scheduledSensable), sensor, SensorManager.SENSOR_DELAY_NORMAL);
+            sensorManager.registerListener(getListener(scheduledSensable, tickBatcher), sensor, SensorManager.SENSOR_DELAY_NORMAL);
 
-            // Mark this sensable as pending
+            // Mark this sensable as pending, this also stores its next due time
             scheduleHelper.setSensablePending(scheduledSensable);
         }
         scheduleHelper.stopSchedulerIfNotNeeded();
+        if (due.isEmpty() && scheduleHelper.countPendingScheduledTasks() == 0) {
+            stopSelf();
+        }
 
         return START_STICKY;
     }
 
+    /**
+     * takes the sensables whose tolerance window has opened off the wake-up plan, moves
+     * each one to its next slot and arms the alarm for the next planned wake-up.
+     *
+     * @param scheduleHelper helper used to read the schedule and set the alarm.
+     *
+     * @param now time of this wake-up in milliseconds since the epoch.
+     *
+     * @returns the sensables to sample now, with their next due time already set.
+     */
+    private List<ScheduledSensable> takeDueSensables(ScheduleHelper scheduleHelper, long now) {
+        Map<Integer, ScheduledSensable> scheduled = new HashMap<Integer, ScheduledSensable>();
+        WakeupPlanner planner = new WakeupPlanner();
+        Cursor cursor = scheduleHelper.getScheduledTasks();
+        try {
+            while (cursor.moveToNext()) {
+                ScheduledSensable scheduledSensable = ScheduledSensablesTable.getScheduledSensable(cursor);
+                scheduled.put(scheduledSensable.getId(), scheduledSensable);
+                planner.add(ScheduleHelper.entryOf(scheduledSensable));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        List<ScheduledSensable> due = new ArrayList<ScheduledSensable>();
+        for (WakeupPlanner.Entry entry : planner.takeDue(now + Config.SAMPLING_DUE_SLACK_MILLIS)) {
+            ScheduledSensable scheduledSensable = scheduled.get(entry.getId());
+            WakeupPlanner.Entry next = entry.next(now);
+            scheduledSensable.setNextDueAt(next.getDueAt());
+            planner.add(next);
+            due.add(scheduledSensable);
+        }
+        Log.d(TAG, due.size() + " of " + scheduled.size() + " sensables due");
+        nextWakeup = planner.nextWakeup();
+        if (planner.size() > 0) {
+            scheduleHelper.armAlarm(planner.nextWindowStart(), nextWakeup);
+        }
+        return due;
+    }
+
     /**
      * creates a SensorEventListener instance that listens for sensor changes and saves
      * them to a ScheduledSensable object. It also stops the sensor and service when no
@@ -123,6 +194,9 @@ public class ScheduledSensableService extends Service {
      * server.
      * 	- `scheduleid`: This is the unique identifier of the scheduled sensable task.
      * 
+     * @param tickBatcher batcher collecting the readings of the current tick for a single
+     * upload.
+     * 
      * @returns a SensorEventListener that listens to sensor changes and saves them to a
      * remote service.
      * 
@@ -147,108 +221,122 @@ public class ScheduledSensableService extends Service {
      * 	- `scheduleHelper.stopSchedulerIfNotNeeded`: This is a method that stops the
      * scheduler if it is not needed.
      */
-    private SensorEventListener getListener(final ScheduledSensable scheduledSensable) {
+    private SensorEventListener getListener(final ScheduledSensable scheduledSensable, final TickBatcher tickBatcher) {
         return new SensorEventListener() {
+            private final WindowAggregator window = new WindowAggregator(Config.SAMPLING_WINDOW_COUNT);
+            private final Handler handler = new Handler();
+            private final Runnable windowDeadline = new Runnable() {
+                @Override
+                public void run() {
+                    closeWindow();
+                }
+            };
+            private Sensor windowSensor;
+            private long windowStartedAt;
+            private boolean closed = false;
+
             /**
-             * handles sensor data received from a listener and saves it to a remote service for
-             * analysis. It creates a sample object, formats its values, and attaches location
+             * collects a reading into the sampling window. The window closes once it holds
+             * `Config.SAMPLING_WINDOW_COUNT` readings or `Config.SAMPLING_WINDOW_MILLIS` after
+             * its first reading, whichever comes first; sensors that only report changes may
+             * deliver a single reading.
+             *
+             * @param event event carrying the reading.
+             */
+            @Override
+            public void onSensorChanged(SensorEvent event) {
+                if (closed) {
+                    return;
+                }
+                if (window.count() == 0) {
+                    windowSensor = event.sensor;
+                    windowStartedAt = System.currentTimeMillis();
+                    handler.postDelayed(windowDeadline, Config.SAMPLING_WINDOW_MILLIS);
+                }
+                window.add(event.values[0]);
+                if (window.isFull()) {
+                    closeWindow();
+                }
+            }
+
+            private void closeWindow() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                handler.removeCallbacks(windowDeadline);
+                // stop the sensor
+                sensorManager.unregisterListener(this);
+                onWindowClosed(windowSensor);
+            }
+
+            /**
+             * handles the aggregated reading of a closed window and saves it to a remote service
+             * for analysis. It creates a sample object, formats its values, and attaches location
              * data before sending it to the service for storage. The function also updates a
              * Scheduled object with the sensor ID, sample values, and other metadata before
-             * stopping the sensor and service if no more tasks are pending.
-             * 
-             * @param event event that triggered the onSensorChanged() method and contains
-             * information about the sensor value change, which is used to create a sample object
-             * and send it to the Sensable service for processing.
-             * 
-             * 	- `sensor`: The sensor that triggered the callback, providing information about
-             * the changed value.
-             * 	- `values`: An array of values representing the raw data from the sensor.
-             * 	- `timestamp`: The timestamp when the sensor was last updated.
+             * stopping the service if no more tasks are pending.
              * 
-             * Note that the `event` object may also contain other properties or attributes
-             * depending on the specific sensor and implementation used.
+             * @param sensor sensor that delivered the readings of the window.
              */
-            @Override
-            public void onSensorChanged(SensorEvent event) {
-                Log.d(TAG, "Sensor Value Changed");
+            private void onWindowClosed(Sensor sensor) {
+                Log.d(TAG, "Sampling window closed with " + window.count() + " readings");
                 ScheduleHelper scheduleHelper = new ScheduleHelper(ScheduledSensableService.this);
 
-                RestAdapter restAdapter = new RestAdapter.Builder()
-                        .setLogLevel(RestAdapter.LogLevel.FULL)
-                        .setEndpoint("http://sensable.io")
-                        .build();
-                SensableService service = restAdapter.create(SensableService.class);
-
                 // Create the sample object
                 Sample sample = new Sample();
                 sample.setTimestamp((System.currentTimeMillis()));
 
                 // TODO: This should parse the sensor type and format the values array differently
-                sample.setValue(event.values[0]);
+                sample.setValue(window.aggregate(SAMPLING_AGGREGATE));
+                if (Config.SAMPLING_WINDOW_MIN_MAX && window.count() > 1) {
+                    sample.setMin(window.min());
+                    sample.setMax(window.max());
+                }
 
                 /* Location needs to be attached to samples once the service supports it */
                 Location lastKnownLocation = getLocation();
                 Log.d(TAG, "Location: " + lastKnownLocation.toString());
                 sample.setLocation(new double[]{lastKnownLocation.getLongitude(), lastKnownLocation.getLatitude()});
 
-                SampleSender sampleSender = new SampleSender();
-                sampleSender.setAccessToken(getUserAccessToken());
-                sampleSender.setSample(sample);
-
                 // Update the Scheduled object
                 scheduledSensable.setLocation(new double[]{lastKnownLocation.getLongitude(), lastKnownLocation.getLatitude()});
                 scheduledSensable.setSample(sample);
-                scheduledSensable.setSensortype(event.sensor.getName());
+                scheduledSensable.setSensortype(sensor.getName());
 
-                scheduledSensable.setInternalSensorId(event.sensor.getType());
-                scheduledSensable.setUnit(SensorHelper.determineUnit(event.sensor.getType()));
+                scheduledSensable.setInternalSensorId(sensor.getType());
+                scheduledSensable.setUnit(SensorHelper.determineUnit(sensor.getType()));
                 scheduledSensable.setPrivateSensor(false);
                 scheduledSensable.setAccessToken(getUserAccessToken());
 
-                Log.d(TAG, "Saving sample: " + event.sensor.getName() + " : " + event.values[0]);
-                service.saveSample(scheduledSensable.getSensorid(), sampleSender, new Callback<SampleResponse>() {
-                    /**
-                     * is called when a sample is posted successfully. It logs a message to the debug log
-                     * indicating that the sample was successfully posted.
-                     * 
-                     * @param success successful posting of a sample.
-                     * 
-                     * 	- `success`: A `SampleResponse` object that represents the successful post request.
-                     * It contains information about the posted sample, such as its ID and name.
-                     * 
-                     * @param response result of the API call made by the `postSample` method, which
-                     * contains information about the success or failure of the sample posting operation.
-                     * 
-                     * 	- `success`: A boolean indicating whether the posting was successful (true) or
-                     * not (false).
-                     * 	- `response`: A JSON object representing the response from the server, containing
-                     * various attributes such as error messages or HTTP status codes.
-                     */
-                    @Override
-                    public void success(SampleResponse success, Response response) {
-                        Log.d(TAG, "Success posting sample");
-                    }
-
-                    /**
-                     * is called when a failure occurs during the posting of a sample. It logs an error
-                     * message with the tag `TAG`.
-                     * 
-                     * @param retrofitError error that occurred during the API call, which is logged to
-                     * the app's logcat using the `Log.e()` method.
-                     * 
-                     * 	- `toString()` returns a string representation of the error object, which can be
-                     * used for logging or further analysis.
-                     */
-                    @Override
-                    public void failure(RetrofitError retrofitError) {
-                        Log.e(TAG, "Failed to post sample: " + retrofitError.toString());
+                if (DeadbandFilter.shouldSend(scheduledSensable, sample.getValue(), sample.getTimestamp())) {
+                    DeadbandFilter.markSent(scheduledSensable, sample.getValue(), sample.getTimestamp());
+                    scheduledSensable.setSequence(scheduledSensable.getSequence() + 1);
+
+                    // The same sample always carries the same key, so retries cannot create duplicates
+                    String idempotencyKey = IdempotencyKey.forSample(scheduledSensable.getSensorid(), sample.getTimestamp(), scheduledSensable.getSequence());
+
+                    // Written ahead of the upload, so the sample survives a failed upload or a crash
+                    long flushBy = new DeferredUploadGate().flushBy(scheduledSensable, sample.getTimestamp());
+                    new OutboundQueue(ScheduledSensableService.this).enqueue(scheduledSensable.getSensorid(), idempotencyKey, sample, flushBy);
+                    UploadStats.getInstance(ScheduledSensableService.this).record(UploadStats.CAPTURE_TO_ENQUEUE_MILLIS,
+                            System.currentTimeMillis() - windowStartedAt);
+
+                    Log.d(TAG, "Collected sample: " + sensor.getName() + " : " + sample.getValue());
+                    if (flushBy == 0) {
+                        tickBatcher.add(scheduledSensable.getSensorid(), idempotencyKey, sample);
+                    } else {
+                        // Left in the queue for a drain while charging or unmetered
+                        tickBatcher.skip();
                     }
-                });
+                } else {
+                    Log.d(TAG, "Within deadband: " + sensor.getName() + " : " + sample.getValue());
+                    tickBatcher.skip();
+                }
 
                 scheduleHelper.unsetSensablePending(scheduledSensable);
 
-                // stop the sensor and service
-                sensorManager.unregisterListener(this);
+                // stop the service
                 if (scheduleHelper.countPendingScheduledTasks() == 0) {
                     // Stop this service from sampling as we are not waiting for any more samples to come in
                     stopSelf();
@@ -305,48 +393,12 @@ public class ScheduledSensableService extends Service {
 
 
     /**
-     * retrieves and returns an access token for a user based on their logged-in status
-     * and saved credentials.
-     * 
-     * @returns a valid access token for the user.
-     * 
-     * 	- `accessToken`: This is the access token obtained from the user's preferences.
-     * It is a string value that represents the user's access token.
-     * 	- `hasAccessToken`: This is a boolean value that indicates whether an access token
-     * is available for the user. If it is set to true, then an access token is available,
-     * and if it is set to false, then no access token is available.
-     * 	- `loggedIn`: This is a boolean value that indicates whether the user is logged
-     * in or not. If it is set to true, then the user is logged in, and if it is set to
-     * false, then the user is not logged in.
-     * 	- `username`: This is the username associated with the user's access token. It
-     * is a string value that represents the user's username.
-     * 
-     * These properties provide information about the user's access token and their login
-     * status, which can be used to determine whether the user has access to certain
-     * resources or features.
+     * returns the access token of the logged in user from the in-memory credentials.
+     *
+     * @returns the access token, empty if nobody is logged in.
      */
     private String getUserAccessToken() {
-        SensableUser user = new SensableUser(this.getSharedPreferences(getString(R.string.preference_file_key), Context.MODE_PRIVATE), this);
-        if (user.loggedIn) {
-            if (user.hasAccessToken) {
-                Log.d(TAG, "Loading Access token");
-                Log.d(TAG, getString(R.string.preference_file_key));
-                Log.d(TAG, getString(R.string.saved_access_token));
-                SharedPreferences sharedPreferences = this.getSharedPreferences(getString(R.string.preference_file_key), Context.MODE_PRIVATE);
-                String username = sharedPreferences.getString(getString(R.string.saved_username), "");
-                Log.d(TAG, "Username: " + username);
-                String accessToken = sharedPreferences.getString(getString(R.string.saved_access_token), "");
-                Log.d(TAG, "Access Token: " + accessToken);
-                return accessToken;
-            } else {
-                Log.d(TAG, "No access Token");
-                return "";
-            }
-        } else {
-            Log.d(TAG, "Not logged in");
-            return "";
-        }
-
+        return CredentialProvider.getInstance(this).getAccessToken();
     }
 
     /**
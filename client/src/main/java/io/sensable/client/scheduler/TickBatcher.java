@@ -0,0 +1,206 @@
+package io.sensable.client.scheduler;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import io.sensable.client.CredentialProvider;
+import io.sensable.client.network.RequestDispatcher;
+import io.sensable.client.network.SensableClient;
+import io.sensable.client.upload.IdempotencyKey;
+import io.sensable.client.upload.OutboundQueue;
+import io.sensable.client.upload.UploadLedger;
+import io.sensable.client.upload.UploadMetrics;
+import io.sensable.client.upload.UploadPlan;
+import io.sensable.client.upload.UploadStats;
+import io.sensable.model.Sample;
+import io.sensable.model.SampleBatch;
+import io.sensable.model.SampleResponse;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * collects the readings of one scheduler tick and uploads them in a single request, so
+ * the radio wakes once per tick instead of once per sensable. The batch is sent as soon
+ * as every expected sensable has reported or when the collection deadline passes,
+ * whichever comes first. A reading arriving after the deadline is sent on its own.
+ * Samples are already in the outbound queue when they are added, a failed upload leaves
+ * them there for the drainer. When the `UploadPlan` lets the queue wait for a later
+ * flush, nothing is sent and the samples stay queued; otherwise the tick is sent in
+ * requests of at most the plan's batch size.
+ */
+public class TickBatcher {
+
+    private static final String TAG = TickBatcher.class.getSimpleName();
+
+    private final Context context;
+    private final int expected;
+    private final UploadPlan uploadPlan;
+    private final boolean send;
+    private final long startedAt;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable deadline = new Runnable() {
+        @Override
+        public void run() {
+            Log.d(TAG, "Collection deadline passed with " + batch.getSamples().size() + " of " + expected + " samples");
+            flush();
+        }
+    };
+
+    private SampleBatch batch = new SampleBatch();
+    private final Map<String, Long> addedAt = new HashMap<String, Long>();
+    private int reported = 0;
+    private boolean flushed = false;
+    // Requests of the tick itself, late readings are not counted
+    private int parts = 0;
+    private int partsPending = 0;
+    private int acknowledged = 0;
+
+    /**
+     * @param context context used to reach the local store.
+     *
+     * @param expected number of sensables sampled in this tick.
+     *
+     * @param deadlineMillis time allowed for collecting the readings.
+     *
+     * @param uploadPlan plan for the current device conditions.
+     *
+     * @param send false to leave the readings in the outbound queue for a later flush.
+     */
+    public TickBatcher(Context context, int expected, long deadlineMillis, UploadPlan uploadPlan, boolean send) {
+        this.context = context.getApplicationContext();
+        this.expected = expected;
+        this.uploadPlan = uploadPlan;
+        this.send = send;
+        this.startedAt = SystemClock.elapsedRealtime();
+        if (expected > 0) {
+            handler.postDelayed(deadline, deadlineMillis);
+        }
+    }
+
+    /**
+     * adds the reading of a sensable to the tick. Must be called on the main thread.
+     *
+     * @param sensorId ID of the sensable.
+     *
+     * @param idempotencyKey key of the sample, see `IdempotencyKey`.
+     *
+     * @param sample the reading.
+     */
+    public void add(String sensorId, String idempotencyKey, Sample sample) {
+        if (!send) {
+            skip();
+            return;
+        }
+        SampleBatch.Entry entry = new SampleBatch.Entry(sensorId, idempotencyKey, sample);
+        // Samples are queued right before they are added
+        addedAt.put(idempotencyKey, SystemClock.elapsedRealtime());
+        if (flushed) {
+            SampleBatch late = new SampleBatch();
+            late.add(entry);
+            upload(late, false);
+            return;
+        }
+        batch.add(entry);
+        report();
+    }
+
+    /**
+     * records that a sensable reported a reading that is not uploaded, e.g. because it
+     * fell within its deadband. Must be called on the main thread.
+     */
+    public void skip() {
+        if (!flushed) {
+            report();
+        }
+    }
+
+    private void report() {
+        reported++;
+        if (reported >= expected) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (flushed) {
+            return;
+        }
+        flushed = true;
+        handler.removeCallbacks(deadline);
+        if (!send) {
+            Log.d(TAG, "Leaving " + reported + " readings queued for a later flush");
+        } else if (!batch.getSamples().isEmpty()) {
+            Log.d(TAG, "Collected " + batch.getSamples().size() + " samples in " + (SystemClock.elapsedRealtime() - startedAt) + "ms");
+            List<SampleBatch.Entry> samples = batch.getSamples();
+            parts = (samples.size() + uploadPlan.getBatchSize() - 1) / uploadPlan.getBatchSize();
+            partsPending = parts;
+            for (int start = 0; start < samples.size(); start += uploadPlan.getBatchSize()) {
+                SampleBatch part = new SampleBatch();
+                for (SampleBatch.Entry entry : samples.subList(start, Math.min(samples.size(), start + uploadPlan.getBatchSize()))) {
+                    part.add(entry);
+                }
+                upload(part, true);
+            }
+        }
+        batch = null;
+        // Also writes the capture latencies recorded during the tick
+        UploadStats.getInstance(context).flush();
+    }
+
+    private void upload(final SampleBatch sampleBatch, final boolean partOfTick) {
+        sampleBatch.setAccessToken(CredentialProvider.getInstance(context).getAccessToken());
+        final UploadStats uploadStats = UploadStats.getInstance(context);
+        uploadStats.record(UploadStats.BATCH_SIZE, sampleBatch.getSamples().size());
+        SensableClient.getInstance().getService(RequestDispatcher.Priority.BACKGROUND).saveSamples(IdempotencyKey.forBatch(sampleBatch), sampleBatch, new Callback<SampleResponse>() {
+            @Override
+            public void success(SampleResponse sampleResponse, Response response) {
+                UploadLedger uploadLedger = new UploadLedger(context);
+                OutboundQueue outboundQueue = new OutboundQueue(context);
+                long now = SystemClock.elapsedRealtime();
+                for (SampleBatch.Entry entry : sampleBatch.getSamples()) {
+                    uploadLedger.acknowledge(entry.getIdempotencyKey());
+                    outboundQueue.remove(entry.getIdempotencyKey());
+                    uploadStats.record(UploadStats.ENQUEUE_TO_ACK_MILLIS, now - addedAt.remove(entry.getIdempotencyKey()));
+                }
+                uploadStats.flush();
+                if (partOfTick) {
+                    acknowledged += sampleBatch.getSamples().size();
+                    partDone();
+                }
+            }
+
+            @Override
+            public void failure(RetrofitError retrofitError) {
+                List<String> keys = new ArrayList<String>(sampleBatch.getSamples().size());
+                for (SampleBatch.Entry entry : sampleBatch.getSamples()) {
+                    keys.add(entry.getIdempotencyKey());
+                }
+                new OutboundQueue(context).markAttempted(keys, retrofitError);
+                Log.e(TAG, "Failed to post " + sampleBatch.getSamples().size() + " samples, left queued: " + retrofitError.toString());
+                if (partOfTick) {
+                    partDone();
+                }
+            }
+        });
+    }
+
+    /**
+     * records the tick once every request of its upload has answered, so the metrics see
+     * one tick with all its requests rather than one tick per request.
+     */
+    private void partDone() {
+        partsPending--;
+        if (partsPending == 0 && acknowledged > 0) {
+            UploadMetrics.getInstance().recordTick(acknowledged, parts, SystemClock.elapsedRealtime() - startedAt);
+        }
+    }
+
+}
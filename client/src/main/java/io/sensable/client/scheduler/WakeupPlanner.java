@@ -0,0 +1,238 @@
+package io.sensable.client.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * plans the wake-ups of the scheduler so that sensables with different intervals share
+ * them. Every sensable may be sampled anywhere within its tolerance around its due time.
+ * The next wake-up is the earliest end of any window, the latest moment the most urgent
+ * sensable can wait, and it samples every sensable whose window has opened by then. This
+ * greedy choice needs the fewest wake-ups for a set of windows. Entries are kept ordered
+ * both by window end and by window start, so finding the next wake-up is O(1) and taking
+ * the due entries costs O(log n) per entry taken rather than a scan of the schedule. The
+ * planner is plain Java so schedules can be evaluated off the device, see
+ * `wakeupsPerHour`.
+ */
+public class WakeupPlanner {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * is a scheduled sensable with its next due time, interval and tolerance.
+     */
+    public static class Entry implements Comparable<Entry> {
+        private final int id;
+        private final long dueAt;
+        private final long intervalMillis;
+        private final long toleranceMillis;
+
+        /**
+         * @param id database ID of the scheduled sensable.
+         *
+         * @param dueAt time it is next due, in milliseconds since the epoch.
+         *
+         * @param intervalMillis time between two samples, must be positive.
+         *
+         * @param toleranceMillis how far a sample may be taken before or after its due time.
+         */
+        public Entry(int id, long dueAt, long intervalMillis, long toleranceMillis) {
+            this.id = id;
+            this.dueAt = dueAt;
+            this.intervalMillis = intervalMillis;
+            this.toleranceMillis = toleranceMillis;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public long getDueAt() {
+            return dueAt;
+        }
+
+        public long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        public long getToleranceMillis() {
+            return toleranceMillis;
+        }
+
+        public long getWindowStart() {
+            return dueAt - toleranceMillis;
+        }
+
+        public long getWindowEnd() {
+            return dueAt + toleranceMillis;
+        }
+
+        /**
+         * returns the entry for the next slot of the schedule after a wake-up. Slots
+         * follow on from the due time, not from the wake-up, so waking within the
+         * tolerance does not shift later samples. Slots whose window has already opened
+         * were missed and are skipped. A sensable that was never sampled, due at 0, joins
+         * the slots of its interval counted from the epoch.
+         *
+         * @param now time of the wake-up that sampled this entry.
+         *
+         * @returns the entry for the first slot whose window opens after `now`.
+         */
+        public Entry next(long now) {
+            long nextDueAt = dueAt + intervalMillis;
+            if (nextDueAt - toleranceMillis <= now) {
+                long missed = (now - (nextDueAt - toleranceMillis)) / intervalMillis + 1;
+                nextDueAt += missed * intervalMillis;
+            }
+            return new Entry(id, nextDueAt, intervalMillis, toleranceMillis);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            long end = getWindowEnd();
+            long otherEnd = other.getWindowEnd();
+            return end < otherEnd ? -1 : (end == otherEnd ? 0 : 1);
+        }
+    }
+
+    // Ties are broken by the other end of the window and the ID, so distinct entries
+    // never compare equal
+    private static final Comparator<Entry> BY_END = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int order = compareLongs(a.getWindowEnd(), b.getWindowEnd());
+            if (order == 0) {
+                order = compareLongs(a.getWindowStart(), b.getWindowStart());
+            }
+            return order != 0 ? order : compareLongs(a.getId(), b.getId());
+        }
+    };
+
+    private static final Comparator<Entry> BY_START = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int order = compareLongs(a.getWindowStart(), b.getWindowStart());
+            if (order == 0) {
+                order = compareLongs(a.getWindowEnd(), b.getWindowEnd());
+            }
+            return order != 0 ? order : compareLongs(a.getId(), b.getId());
+        }
+    };
+
+    // The first entry is the next wake-up
+    private final TreeSet<Entry> byEnd = new TreeSet<Entry>(BY_END);
+    // The first entries are the ones whose window opens first
+    private final TreeSet<Entry> byStart = new TreeSet<Entry>(BY_START);
+
+    public WakeupPlanner() {
+    }
+
+    /**
+     * @param entries entries to plan.
+     */
+    public WakeupPlanner(Collection<Entry> entries) {
+        for (Entry entry : entries) {
+            add(entry);
+        }
+    }
+
+    public void add(Entry entry) {
+        byEnd.add(entry);
+        byStart.add(entry);
+    }
+
+    public int size() {
+        return byEnd.size();
+    }
+
+    /**
+     * returns when the scheduler has to wake up next.
+     *
+     * @returns the earliest window end in milliseconds since the epoch, 0 if nothing is
+     * planned.
+     */
+    public long nextWakeup() {
+        return byEnd.isEmpty() ? 0 : byEnd.first().getWindowEnd();
+    }
+
+    /**
+     * returns the earliest time the next wake-up may happen and still sample everything
+     * it would sample at `nextWakeup`, the latest window start among those entries. Only
+     * the entries of that wake-up are visited.
+     *
+     * @returns a time between the opening of the most urgent window and `nextWakeup`, 0
+     * if nothing is planned.
+     */
+    public long nextWindowStart() {
+        long end = nextWakeup();
+        long start = 0;
+        for (Entry entry : byStart) {
+            if (entry.getWindowStart() > end) {
+                break;
+            }
+            start = entry.getWindowStart();
+        }
+        return start;
+    }
+
+    /**
+     * removes and returns every entry whose window has opened by the given time.
+     *
+     * @param now time of the wake-up.
+     *
+     * @returns the entries to sample now.
+     */
+    public List<Entry> takeDue(long now) {
+        List<Entry> due = new ArrayList<Entry>();
+        Iterator<Entry> entries = byStart.iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.getWindowStart() > now) {
+                break;
+            }
+            due.add(entry);
+            entries.remove();
+            byEnd.remove(entry);
+        }
+        return due;
+    }
+
+    /**
+     * simulates a schedule and counts its wake-ups.
+     *
+     * @param entries entries of the schedule, with their first due times.
+     *
+     * @param horizonMillis length of the simulated period, starting at the earliest window.
+     *
+     * @returns the average number of wake-ups per hour over the period.
+     */
+    public static double wakeupsPerHour(Collection<Entry> entries, long horizonMillis) {
+        WakeupPlanner planner = new WakeupPlanner(entries);
+        if (planner.size() == 0 || horizonMillis <= 0) {
+            return 0;
+        }
+        long start = Long.MAX_VALUE;
+        for (Entry entry : entries) {
+            start = Math.min(start, entry.getWindowStart());
+        }
+        long end = start + horizonMillis;
+        int wakeups = 0;
+        long wakeup;
+        while ((wakeup = planner.nextWakeup()) <= end) {
+            wakeups++;
+            for (Entry entry : planner.takeDue(wakeup)) {
+                planner.add(entry.next(wakeup));
+            }
+        }
+        return wakeups * (double) HOUR_MILLIS / horizonMillis;
+    }
+
+    private static int compareLongs(long a, long b) {
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,139 @@
+package io.sensable.client.scheduler;
+
+/**
+ * aggregates the readings of a sampling window into a single value. All storage is
+ * allocated up front, adding readings and computing aggregates allocate nothing, so it
+ * can run in a sensor callback at any rate. Readings beyond the capacity are ignored.
+ */
+public class WindowAggregator {
+
+    /**
+     * is the statistic a window is reduced to.
+     */
+    public enum Aggregate {
+        MEDIAN,
+        MEAN,
+        /** mean of the readings left after dropping the lowest and highest 10%. */
+        TRIMMED_MEAN
+    }
+
+    private static final double TRIM_FRACTION = 0.1;
+
+    private final double[] readings;
+    private final double[] sorted;
+    private int count = 0;
+    private double sum = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param capacity maximum number of readings in a window.
+     */
+    public WindowAggregator(int capacity) {
+        readings = new double[capacity];
+        sorted = new double[capacity];
+    }
+
+    /**
+     * adds a reading to the window.
+     *
+     * @param value the reading.
+     */
+    public void add(double value) {
+        if (count == readings.length) {
+            return;
+        }
+        readings[count++] = value;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == readings.length;
+    }
+
+    /**
+     * empties the window for reuse.
+     */
+    public void reset() {
+        count = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    public double mean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public double median() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        sort();
+        int middle = count / 2;
+        return count % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    public double trimmedMean() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        sort();
+        int trim = (int) (count * TRIM_FRACTION);
+        double trimmedSum = 0;
+        for (int i = trim; i < count - trim; i++) {
+            trimmedSum += sorted[i];
+        }
+        return trimmedSum / (count - 2 * trim);
+    }
+
+    /**
+     * returns the given statistic of the window.
+     *
+     * @param aggregate statistic to compute.
+     *
+     * @returns the value, NaN for an empty window.
+     */
+    public double aggregate(Aggregate aggregate) {
+        switch (aggregate) {
+            case MEDIAN:
+                return median();
+            case TRIMMED_MEAN:
+                return trimmedMean();
+            default:
+                return mean();
+        }
+    }
+
+    /**
+     * copies the readings into the sort buffer and sorts them. Windows are small, so an
+     * insertion sort is fast enough and, unlike `Arrays.sort`, never allocates.
+     */
+    private void sort() {
+        System.arraycopy(readings, 0, sorted, 0, count);
+        for (int i = 1; i < count; i++) {
+            double value = sorted[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+    }
+
+}
@@ -42,7 +42,136 @@ public class Config {
     /**
      * DB version for SQLite database.
      */
-    public static final int SENSABLE_STORAGE_DB_VERSION = 6;
+    public static final int SENSABLE_STORAGE_DB_VERSION = 16;
 
-}
+    /**
+     * Whether sample upload bodies may be sent gzip compressed.
+     */
+    public static final boolean GZIP_UPLOADS = true;
+
+    /**
+     * Upload bodies smaller than this many bytes are sent
+     * uncompressed, gzip overhead outweighs the savings.
+     */
+    public static final int GZIP_MIN_BODY_BYTES = 1024;
+
+    /**
+     * Default deflate level for compressed uploads.
+     */
+    public static final int GZIP_COMPRESSION_LEVEL = 6;
+
+    /**
+     * Length of the time-range chunks a sample history is
+     * downloaded in.
+     */
+    public static final long HISTORY_CHUNK_MILLIS = 90L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Maximum number of history chunks downloaded at once.
+     */
+    public static final int HISTORY_DOWNLOAD_PARALLELISM = 4;
+
+    /**
+     * Maximum number of samples of the single request a long
+     * history is probed with, it is only split into chunks if
+     * the probe comes back full.
+     */
+    public static final int HISTORY_PROBE_LIMIT = 1000;
 
+    /**
+     * Time allowed for refreshing all favourites at once,
+     * favourites that have not answered by then are skipped.
+     */
+    public static final long FAVOURITES_REFRESH_DEADLINE_MILLIS = 10 * 1000;
+
+    /**
+     * Period a favourite without a cached history is refreshed
+     * for, only its latest sample is kept from it.
+     */
+    public static final long FAVOURITES_RECENT_WINDOW_MILLIS = 24 * 60 * 60 * 1000;
+
+    /**
+     * Time a scheduler tick waits for the readings of all
+     * its sensables before uploading what it has. Has to
+     * leave room for a full sampling window.
+     */
+    public static final long TICK_COLLECTION_DEADLINE_MILLIS = 15 * 1000;
+
+    /**
+     * Relative deadband given to new scheduled sensables of
+     * slowly changing sensors, see `SensorHelper.isSlowlyChanging`.
+     */
+    public static final double DEFAULT_DEADBAND_RELATIVE = 0.01;
+
+    /**
+     * Heartbeat given to new scheduled sensables with a deadband,
+     * a reading is uploaded at least this often.
+     */
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * Maximum number of readings collected per sampling window,
+     * 1 uploads the first reading as it is.
+     */
+    public static final int SAMPLING_WINDOW_COUNT = 25;
+
+    /**
+     * Maximum duration of a sampling window after its first reading.
+     */
+    public static final long SAMPLING_WINDOW_MILLIS = 10 * 1000;
+
+    /**
+     * Statistic a sampling window is reduced to,
+     * one of MEDIAN, MEAN or TRIMMED_MEAN.
+     */
+    public static final String SAMPLING_AGGREGATE = "TRIMMED_MEAN";
+
+    /**
+     * Whether the minimum and maximum of a sampling window are
+     * uploaded along with its aggregate.
+     */
+    public static final boolean SAMPLING_WINDOW_MIN_MAX = true;
+
+    /**
+     * Queued samples beyond this count are compacted into
+     * rollups, oldest first.
+     */
+    public static final int BACKLOG_MAX_SAMPLES = 5000;
+
+    /**
+     * Queued samples older than this are compacted into rollups
+     * once the queue holds at least BACKLOG_COMPACT_MIN_SAMPLES.
+     */
+    public static final long BACKLOG_COMPACT_AGE_MILLIS = 24 * 60 * 60 * 1000;
+
+    /**
+     * Queues shorter than this are never compacted for age, a
+     * small backlog is uploaded as it is.
+     */
+    public static final int BACKLOG_COMPACT_MIN_SAMPLES = 1000;
+
+    /**
+     * Longest a deferred sample waits for charging or an
+     * unmetered network, unless its sensable sets its own bound.
+     */
+    public static final long DEFERRED_MAX_STALENESS_MILLIS = 6 * 60 * 60 * 1000;
+
+    /**
+     * Sampling interval of scheduled sensables that do not
+     * set their own.
+     */
+    public static final long DEFAULT_SAMPLING_INTERVAL_MILLIS = 15 * 60 * 1000;
+
+    /**
+     * Sensables due within this time of a wake-up are sampled
+     * with it, as alarms may fire slightly early.
+     */
+    public static final long SAMPLING_DUE_SLACK_MILLIS = 60 * 1000;
+
+    /**
+     * Tolerance of scheduled sensables that do not set their
+     * own, as a fraction of their interval.
+     */
+    public static final double DEFAULT_SAMPLING_TOLERANCE_FRACTION = 0.1;
+
+}
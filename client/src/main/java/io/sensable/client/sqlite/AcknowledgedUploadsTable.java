@@ -0,0 +1,43 @@
+package io.sensable.client.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * is a SQLite table recording the idempotency keys of uploads that sensable.io has
+ * acknowledged. Keys are stored as their 64-bit hash so the record stays compact, and
+ * entries are pruned once they are too old to be retried.
+ */
+public class AcknowledgedUploadsTable {
+
+    public static final String NAME = "acknowledged_uploads";
+    public static final String COLUMN_KEY_HASH = "_id";
+    public static final String COLUMN_ACKNOWLEDGED_AT = "acknowledged_at";
+
+    private static final String DATABASE_CREATE = "create table if not exists " + NAME + "(" + COLUMN_KEY_HASH + " integer primary key, "
+            + COLUMN_ACKNOWLEDGED_AT + " integer not null" + ");";
+
+    /**
+     * executes the SQL statement that creates the table.
+     *
+     * @param database SQLite database in which the table is created.
+     */
+    public static void onCreate(SQLiteDatabase database) {
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    /**
+     * keeps the acknowledged keys across upgrades, without them a retried upload could
+     * be counted twice. Its schema has not changed since it was introduced, so only a
+     * missing table is created.
+     *
+     * @param database SQLite database that is being upgraded.
+     *
+     * @param oldVersion previous version of the database schema.
+     *
+     * @param newVersion new version of the database schema.
+     */
+    public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        onCreate(database);
+    }
+
+}
@@ -0,0 +1,143 @@
+package io.sensable.client.sqlite;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import io.sensable.model.Sample;
+
+/**
+ * is the write-ahead queue of samples waiting to be uploaded. Every captured sample is
+ * appended here before its upload starts and removed once sensable.io acknowledged it,
+ * so readings taken while offline or during a crash survive until they are sent. Rows
+ * are kept in append order by the autoincrement ID.
+ */
+public class OutboundSamplesTable {
+
+    public static final String NAME = "outbound_samples";
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_SENSOR_ID = "outbound_sensor_id";
+    public static final String COLUMN_IDEMPOTENCY_KEY = "outbound_idempotency_key";
+    public static final String COLUMN_TIMESTAMP = "outbound_timestamp";
+    public static final String COLUMN_VALUE = "outbound_value";
+    public static final String COLUMN_LOCATION_LONGITUDE = "outbound_longitude";
+    public static final String COLUMN_LOCATION_LATITUDE = "outbound_latitude";
+    public static final String COLUMN_ENQUEUED_AT = "outbound_enqueued_at";
+    public static final String COLUMN_MIN = "outbound_min";
+    public static final String COLUMN_MAX = "outbound_max";
+    public static final String COLUMN_COUNT = "outbound_count";
+    public static final String COLUMN_FLUSH_BY = "outbound_flush_by";
+    public static final String COLUMN_ATTEMPTED = "outbound_attempted";
+
+    private static final String DATABASE_CREATE = "create table if not exists " + NAME + "(" + COLUMN_ID + " integer primary key autoincrement, "
+            + COLUMN_SENSOR_ID + " text not null, "
+            + COLUMN_IDEMPOTENCY_KEY + " text unique not null, "
+            + COLUMN_TIMESTAMP + " integer not null, "
+            + COLUMN_VALUE + " real not null, "
+            + COLUMN_LOCATION_LONGITUDE + " real, "
+            + COLUMN_LOCATION_LATITUDE + " real, "
+            + COLUMN_ENQUEUED_AT + " integer not null, "
+            + COLUMN_MIN + " real, "
+            + COLUMN_MAX + " real, "
+            + COLUMN_COUNT + " integer not null default 1, "
+            + COLUMN_FLUSH_BY + " integer not null default 0, "
+            + COLUMN_ATTEMPTED + " integer not null default 0"
+            + ");";
+
+    // First database versions whose queue has the aggregate, flush-by and attempted columns
+    private static final int AGGREGATES_VERSION = 11;
+    private static final int FLUSH_BY_VERSION = 12;
+    private static final int ATTEMPTED_VERSION = 16;
+
+    /**
+     * executes the SQL statement that creates the outbound queue.
+     *
+     * @param database SQLite database in which the table is created.
+     */
+    public static void onCreate(SQLiteDatabase database) {
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    /**
+     * keeps the outbound queue across upgrades, its rows cannot be refetched from
+     * sensable.io. Columns added since are added to an existing queue.
+     *
+     * @param database SQLite database that is being upgraded.
+     *
+     * @param oldVersion previous version of the database schema.
+     *
+     * @param newVersion new version of the database schema.
+     */
+    public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        if (SensableDatabaseHelper.tableExists(database, NAME)) {
+            if (oldVersion < AGGREGATES_VERSION) {
+                database.execSQL("alter table " + NAME + " add column " + COLUMN_MIN + " real");
+                database.execSQL("alter table " + NAME + " add column " + COLUMN_MAX + " real");
+                database.execSQL("alter table " + NAME + " add column " + COLUMN_COUNT + " integer not null default 1");
+            }
+            if (oldVersion < FLUSH_BY_VERSION) {
+                database.execSQL("alter table " + NAME + " add column " + COLUMN_FLUSH_BY + " integer not null default 0");
+            }
+            if (oldVersion < ATTEMPTED_VERSION) {
+                // Whether older rows were ever sent is unknown, so they are never compacted
+                database.execSQL("alter table " + NAME + " add column " + COLUMN_ATTEMPTED + " integer not null default 1");
+            }
+        }
+        onCreate(database);
+    }
+
+    /**
+     * converts a captured sample into `ContentValues` ready to be appended to the queue.
+     *
+     * @param sensorId ID of the sensable the sample belongs to.
+     *
+     * @param idempotencyKey key the sample is uploaded with.
+     *
+     * @param sample sample to serialize.
+     *
+     * @returns a ContentValues object for the queue.
+     */
+    public static ContentValues serializeSampleForSqlLite(String sensorId, String idempotencyKey, Sample sample) {
+        ContentValues serializedSample = new ContentValues();
+        serializedSample.put(COLUMN_SENSOR_ID, sensorId);
+        serializedSample.put(COLUMN_IDEMPOTENCY_KEY, idempotencyKey);
+        serializedSample.put(COLUMN_TIMESTAMP, sample.getTimestamp());
+        serializedSample.put(COLUMN_VALUE, sample.getValue());
+        if (sample.getLocation() != null) {
+            serializedSample.put(COLUMN_LOCATION_LONGITUDE, sample.getLocation()[0]);
+            serializedSample.put(COLUMN_LOCATION_LATITUDE, sample.getLocation()[1]);
+        }
+        serializedSample.put(COLUMN_ENQUEUED_AT, System.currentTimeMillis());
+        serializedSample.put(COLUMN_MIN, sample.getMin());
+        serializedSample.put(COLUMN_MAX, sample.getMax());
+        serializedSample.put(COLUMN_COUNT, sample.getCount() == null ? 1 : sample.getCount());
+        return serializedSample;
+    }
+
+    /**
+     * reads the sample of the current row of a cursor over the queue.
+     *
+     * @param cursor cursor positioned on a row of the `outbound_samples` table.
+     *
+     * @returns the queued sample.
+     */
+    public static Sample getSample(Cursor cursor) {
+        Sample sample = new Sample();
+        sample.setTimestamp(cursor.getLong(cursor.getColumnIndex(COLUMN_TIMESTAMP)));
+        sample.setValue(cursor.getDouble(cursor.getColumnIndex(COLUMN_VALUE)));
+        int longitude = cursor.getColumnIndex(COLUMN_LOCATION_LONGITUDE);
+        if (!cursor.isNull(longitude)) {
+            sample.setLocation(new double[]{cursor.getDouble(longitude), cursor.getDouble(cursor.getColumnIndex(COLUMN_LOCATION_LATITUDE))});
+        }
+        int min = cursor.getColumnIndex(COLUMN_MIN);
+        if (!cursor.isNull(min)) {
+            sample.setMin(cursor.getDouble(min));
+            sample.setMax(cursor.getDouble(cursor.getColumnIndex(COLUMN_MAX)));
+        }
+        int count = cursor.getInt(cursor.getColumnIndex(COLUMN_COUNT));
+        if (count > 1) {
+            sample.setCount(count);
+        }
+        return sample;
+    }
+
+}
@@ -0,0 +1,77 @@
+package io.sensable.client.sqlite;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import io.sensable.model.Sample;
+import io.sensable.model.Sensable;
+
+/**
+ * writes samples fetched in the background into the local store of a favourite: they
+ * are appended to its cached history and the newest one becomes its last sample, which
+ * refreshes the favourites list through its content observer.
+ */
+public class SampleStore {
+
+    private final Context context;
+
+    public SampleStore(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * appends samples to a favourite in a single transaction and updates its last sample.
+     *
+     * @param sensorId ID of the favourite.
+     *
+     * @param samples new samples, in any order.
+     *
+     * @returns the number of samples that were not cached before.
+     */
+    public int appendSamples(String sensorId, Sample[] samples) {
+        if (samples == null || samples.length == 0) {
+            return 0;
+        }
+        ContentValues[] values = new ContentValues[samples.length];
+        Sample newest = samples[0];
+        for (int i = 0; i < samples.length; i++) {
+            values[i] = SavedSamplesTable.serializeSampleForSqlLite(sensorId, samples[i]);
+            if (samples[i].getTimestamp() > newest.getTimestamp()) {
+                newest = samples[i];
+            }
+        }
+        int rowsInserted = context.getContentResolver().bulkInsert(SensableContentProvider.getSamplesUri(sensorId), values);
+
+        Sensable lastSample = new Sensable();
+        lastSample.setSensorid(sensorId);
+        lastSample.setSample(newest);
+        context.getContentResolver().update(Uri.parse(SensableContentProvider.CONTENT_URI + "/" + sensorId),
+                SavedSensablesTable.serializeSensableWithSingleSampleForSqlLite(lastSample), null, null);
+        return rowsInserted;
+    }
+
+    /**
+     * returns the timestamp of the newest sample in the cached history of a favourite.
+     * The favourite's last sample is deliberately not taken into account: it can be
+     * newer than the cached history, and fetching from it on would leave the samples in
+     * between out of the cache for good.
+     *
+     * @param sensorId ID of the favourite.
+     *
+     * @returns the newest cached timestamp, 0 if nothing is cached.
+     */
+    public long latestTimestamp(String sensorId) {
+        long latest = 0;
+        Cursor cursor = context.getContentResolver().query(SensableContentProvider.getSamplesUri(sensorId),
+                new String[]{SavedSamplesTable.COLUMN_TIMESTAMP}, null, null, SavedSamplesTable.COLUMN_TIMESTAMP + " DESC LIMIT 1");
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                latest = cursor.getLong(0);
+            }
+            cursor.close();
+        }
+        return latest;
+    }
+
+}
@@ -0,0 +1,84 @@
+package io.sensable.client.sqlite;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import io.sensable.model.Sample;
+
+/**
+ * is a SQLite table holding the locally cached sample history of favourite sensables.
+ * Each row is a single sample keyed by sensor ID and timestamp, so a refresh only has
+ * to append the samples that are newer than the latest cached timestamp.
+ */
+public class SavedSamplesTable {
+
+    public static final String NAME = "saved_samples";
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_SENSOR_ID = "sample_sensor_id";
+    public static final String COLUMN_TIMESTAMP = "sample_timestamp";
+    public static final String COLUMN_VALUE = "sample_value";
+
+    private static final String DATABASE_CREATE = "create table if not exists " + NAME + "(" + COLUMN_ID + " integer primary key autoincrement, "
+            + COLUMN_SENSOR_ID + " text not null, "
+            + COLUMN_TIMESTAMP + " integer not null, "
+            + COLUMN_VALUE + " real not null, "
+            + "unique (" + COLUMN_SENSOR_ID + ", " + COLUMN_TIMESTAMP + ") on conflict ignore"
+            + ");";
+
+    /**
+     * executes the SQL statement that creates the sample cache table.
+     *
+     * @param database SQLite database in which the table is created.
+     */
+    public static void onCreate(SQLiteDatabase database) {
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    /**
+     * keeps the cached samples across upgrades, so favourites do not have to download
+     * their history again. Its schema has not changed since it was introduced, so only
+     * a missing table is created.
+     *
+     * @param database SQLite database that is being upgraded.
+     *
+     * @param oldVersion previous version of the database schema.
+     *
+     * @param newVersion new version of the database schema.
+     */
+    public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        onCreate(database);
+    }
+
+    /**
+     * converts a single sample of a sensable into `ContentValues` ready to be inserted
+     * into the sample cache.
+     *
+     * @param sensorId ID of the sensable the sample belongs to.
+     *
+     * @param sample sample to serialize.
+     *
+     * @returns a ContentValues object containing the sensor ID, timestamp and value.
+     */
+    public static ContentValues serializeSampleForSqlLite(String sensorId, Sample sample) {
+        ContentValues serializedSample = new ContentValues();
+        serializedSample.put(COLUMN_SENSOR_ID, sensorId);
+        serializedSample.put(COLUMN_TIMESTAMP, sample.getTimestamp());
+        serializedSample.put(COLUMN_VALUE, sample.getValue());
+        return serializedSample;
+    }
+
+    /**
+     * reads the sample at the current position of a cursor over the sample cache.
+     *
+     * @param cursor cursor positioned on a row of the `saved_samples` table.
+     *
+     * @returns a Sample with the timestamp and value of the current row.
+     */
+    public static Sample getSample(Cursor cursor) {
+        Sample sample = new Sample();
+        sample.setTimestamp(cursor.getLong(cursor.getColumnIndex(COLUMN_TIMESTAMP)));
+        sample.setValue(cursor.getDouble(cursor.getColumnIndex(COLUMN_VALUE)));
+        return sample;
+    }
+
+}
@@ -29,7 +29,7 @@ public class SavedSensablesTable {
     public static final String COLUMN_LAST_SAMPLE = "sensable_last_sample";
     public static final String COLUMN_UNIT = "sensable_unit";
 
-    private static final String DATABASE_CREATE = "create table " + NAME + "(" + COLUMN_ID + " integer primary key autoincrement, "
+    private static final String DATABASE_CREATE = "create table if not exists " + NAME + "(" + COLUMN_ID + " integer primary key autoincrement, "
             + COLUMN_LOCATION_LATITUDE + " real not null, "
             + COLUMN_LOCATION_LONGITUDE + " real not null, "
             + COLUMN_SENSOR_ID + " text unique not null, "
@@ -55,26 +55,17 @@ public class SavedSensablesTable {
         database.execSQL(DATABASE_CREATE);
     }
 
-    // TODO: make it smarter
     /**
-     * drops an existing table named `NAME` and then calls the `onCreate` function to
-     * create a new table with the same name.
-     * 
-     * @param database SQLiteDatabase object that is being upgraded, and it is used to
-     * execute SQL commands on the database.
-     * 
-     * 	- `database`: A SQLiteDatabase object that represents the database to be upgraded.
-     * 	- `oldVersion`: An integer representing the previous version number of the database.
-     * 	- `newVersion`: An integer representing the current version number of the database.
-     * 
-     * @param oldVersion previous version of the database, which is used to determine
-     * whether an upgrade is necessary.
-     * 
-     * @param newVersion version of the application that is being upgraded, and it is
-     * used to determine whether the database schema needs to be updated or not.
+     * keeps the favourites across upgrades, their schema has not changed since they were
+     * introduced.
+     *
+     * @param database SQLite database that is being upgraded.
+     *
+     * @param oldVersion previous version of the database schema.
+     *
+     * @param newVersion new version of the database schema.
      */
     public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
-        database.execSQL("DROP TABLE IF EXISTS " + NAME);
         onCreate(database);
     }
 
@@ -28,15 +28,44 @@ public class ScheduledSensablesTable {
     public static final String COLUMN_LAST_SAMPLE = "scheduled_last_sample";
     public static final String COLUMN_UNIT = "scheduled_unit";
     public static final String COLUMN_PENDING = "scheduled_pending";
+    public static final String COLUMN_SEQUENCE = "scheduled_sequence";
+    public static final String COLUMN_DEADBAND_ABSOLUTE = "scheduled_deadband_absolute";
+    public static final String COLUMN_DEADBAND_RELATIVE = "scheduled_deadband_relative";
+    public static final String COLUMN_HEARTBEAT_MILLIS = "scheduled_heartbeat_millis";
+    public static final String COLUMN_LAST_SENT_VALUE = "scheduled_last_sent_value";
+    public static final String COLUMN_LAST_SENT_AT = "scheduled_last_sent_at";
+    public static final String COLUMN_UPLOAD_CLASS = "scheduled_upload_class";
+    public static final String COLUMN_MAX_STALENESS_MILLIS = "scheduled_max_staleness_millis";
+    public static final String COLUMN_INTERVAL_MILLIS = "scheduled_interval_millis";
+    public static final String COLUMN_NEXT_DUE_AT = "scheduled_next_due_at";
+    public static final String COLUMN_TOLERANCE_MILLIS = "scheduled_tolerance_millis";
 
-    private static final String DATABASE_CREATE = "create table " + NAME + "(" + COLUMN_ID + " integer primary key autoincrement, "
+    private static final String DATABASE_CREATE = "create table if not exists " + NAME + "(" + COLUMN_ID + " integer primary key autoincrement, "
             + COLUMN_SENSABLE_ID + " text unique not null, "
             + COLUMN_SENSOR_ID + " int not null, "
             + COLUMN_SENSOR_NAME + " text, "
             + COLUMN_SENSOR_TYPE + " text not null, "
             + COLUMN_LAST_SAMPLE + " text, "
             + COLUMN_UNIT + " text not null, "
-            + COLUMN_PENDING + " int not null" + ");";
+            + COLUMN_PENDING + " int not null, "
+            + COLUMN_SEQUENCE + " integer not null default 0, "
+            + COLUMN_DEADBAND_ABSOLUTE + " real not null default 0, "
+            + COLUMN_DEADBAND_RELATIVE + " real not null default 0, "
+            + COLUMN_HEARTBEAT_MILLIS + " integer not null default 0, "
+            + COLUMN_LAST_SENT_VALUE + " real not null default 0, "
+            + COLUMN_LAST_SENT_AT + " integer not null default 0, "
+            + COLUMN_UPLOAD_CLASS + " int not null default 0, "
+            + COLUMN_MAX_STALENESS_MILLIS + " integer not null default 0, "
+            + COLUMN_INTERVAL_MILLIS + " integer not null default 0, "
+            + COLUMN_NEXT_DUE_AT + " integer not null default 0, "
+            + COLUMN_TOLERANCE_MILLIS + " integer not null default 0" + ");";
+
+    // First database versions whose schedule has the columns of each feature
+    private static final int SEQUENCE_VERSION = 8;
+    private static final int DEADBAND_VERSION = 10;
+    private static final int UPLOAD_CLASS_VERSION = 12;
+    private static final int INTERVAL_VERSION = 14;
+    private static final int TOLERANCE_VERSION = 15;
 
 
     /**
@@ -54,26 +83,46 @@ public class ScheduledSensablesTable {
     }
 
     /**
-     * drops an existing table and recreates it according to the new version's schema.
-     * 
-     * @param database SQLiteDatabase object that is being upgraded.
-     * 
-     * 	- `SQLiteDatabase`: This is an instance of the SQLite database class, which
-     * provides methods for managing SQLite databases.
-     * 	- `oldVersion`, `newVersion`: These are integers that represent the old and new
-     * versions of the database, respectively.
-     * 
-     * @param oldVersion version of the database that is being upgraded, which is used
-     * to determine the appropriate action to take during the upgrade process.
-     * 
-     * @param newVersion new version of the SQLite database, which is used to determine
-     * the appropriate actions to take during the upgrade process.
+     * keeps the scheduled sensables across upgrades, they only exist on this device.
+     * Columns added since are added to an existing table with their defaults.
+     *
+     * @param database SQLite database that is being upgraded.
+     *
+     * @param oldVersion previous version of the database schema.
+     *
+     * @param newVersion new version of the database schema.
      */
     public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
-        database.execSQL("DROP TABLE IF EXISTS " + NAME);
+        if (SensableDatabaseHelper.tableExists(database, NAME)) {
+            if (oldVersion < SEQUENCE_VERSION) {
+                addColumn(database, COLUMN_SEQUENCE);
+            }
+            if (oldVersion < DEADBAND_VERSION) {
+                database.execSQL("alter table " + NAME + " add column " + COLUMN_DEADBAND_ABSOLUTE + " real not null default 0");
+                database.execSQL("alter table " + NAME + " add column " + COLUMN_DEADBAND_RELATIVE + " real not null default 0");
+                addColumn(database, COLUMN_HEARTBEAT_MILLIS);
+                database.execSQL("alter table " + NAME + " add column " + COLUMN_LAST_SENT_VALUE + " real not null default 0");
+                addColumn(database, COLUMN_LAST_SENT_AT);
+            }
+            if (oldVersion < UPLOAD_CLASS_VERSION) {
+                addColumn(database, COLUMN_UPLOAD_CLASS);
+                addColumn(database, COLUMN_MAX_STALENESS_MILLIS);
+            }
+            if (oldVersion < INTERVAL_VERSION) {
+                addColumn(database, COLUMN_INTERVAL_MILLIS);
+                addColumn(database, COLUMN_NEXT_DUE_AT);
+            }
+            if (oldVersion < TOLERANCE_VERSION) {
+                addColumn(database, COLUMN_TOLERANCE_MILLIS);
+            }
+        }
         onCreate(database);
     }
 
+    private static void addColumn(SQLiteDatabase database, String column) {
+        database.execSQL("alter table " + NAME + " add column " + column + " integer not null default 0");
+    }
+
     /**
      * converts a `ScheduledSensable` object into a `ContentValues` instance, which can
      * be used for database storage in SQLite. It serializes the `ScheduledSensable`
@@ -122,6 +171,17 @@ public class ScheduledSensablesTable {
         serializedScheduledSensable.put(COLUMN_LAST_SAMPLE, scheduledSensable.getSampleAsJsonString());
         serializedScheduledSensable.put(COLUMN_UNIT, scheduledSensable.getUnit());
         serializedScheduledSensable.put(COLUMN_PENDING, false);
+        serializedScheduledSensable.put(COLUMN_SEQUENCE, scheduledSensable.getSequence());
+        serializedScheduledSensable.put(COLUMN_DEADBAND_ABSOLUTE, scheduledSensable.getDeadbandAbsolute());
+        serializedScheduledSensable.put(COLUMN_DEADBAND_RELATIVE, scheduledSensable.getDeadbandRelative());
+        serializedScheduledSensable.put(COLUMN_HEARTBEAT_MILLIS, scheduledSensable.getHeartbeatMillis());
+        serializedScheduledSensable.put(COLUMN_LAST_SENT_VALUE, scheduledSensable.getLastSentValue());
+        serializedScheduledSensable.put(COLUMN_LAST_SENT_AT, scheduledSensable.getLastSentAt());
+        serializedScheduledSensable.put(COLUMN_UPLOAD_CLASS, scheduledSensable.getUploadClass());
+        serializedScheduledSensable.put(COLUMN_MAX_STALENESS_MILLIS, scheduledSensable.getMaxStalenessMillis());
+        serializedScheduledSensable.put(COLUMN_INTERVAL_MILLIS, scheduledSensable.getIntervalMillis());
+        serializedScheduledSensable.put(COLUMN_NEXT_DUE_AT, scheduledSensable.getNextDueAt());
+        serializedScheduledSensable.put(COLUMN_TOLERANCE_MILLIS, scheduledSensable.getToleranceMillis());
         return serializedScheduledSensable;
     }
 
@@ -180,6 +240,17 @@ public class ScheduledSensablesTable {
             scheduledSensable.setSensortype(cursor.getString(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_SENSOR_TYPE)));
             scheduledSensable.setUnit(cursor.getString(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_UNIT)));
             scheduledSensable.setPending(cursor.getInt(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_PENDING)));
+            scheduledSensable.setSequence(cursor.getLong(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_SEQUENCE)));
+            scheduledSensable.setDeadbandAbsolute(cursor.getDouble(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_DEADBAND_ABSOLUTE)));
+            scheduledSensable.setDeadbandRelative(cursor.getDouble(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_DEADBAND_RELATIVE)));
+            scheduledSensable.setHeartbeatMillis(cursor.getLong(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_HEARTBEAT_MILLIS)));
+            scheduledSensable.setLastSentValue(cursor.getDouble(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_LAST_SENT_VALUE)));
+            scheduledSensable.setLastSentAt(cursor.getLong(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_LAST_SENT_AT)));
+            scheduledSensable.setUploadClass(cursor.getInt(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_UPLOAD_CLASS)));
+            scheduledSensable.setMaxStalenessMillis(cursor.getLong(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_MAX_STALENESS_MILLIS)));
+            scheduledSensable.setIntervalMillis(cursor.getLong(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_INTERVAL_MILLIS)));
+            scheduledSensable.setNextDueAt(cursor.getLong(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_NEXT_DUE_AT)));
+            scheduledSensable.setToleranceMillis(cursor.getLong(cursor.getColumnIndex(ScheduledSensablesTable.COLUMN_TOLERANCE_MILLIS)));
             if(cursor.getColumnIndex(SavedSensablesTable.COLUMN_LAST_SAMPLE) != -1) {
                 String jsonSample = cursor.getString(cursor.getColumnIndex(SavedSensablesTable.COLUMN_LAST_SAMPLE));
                 try {
@@ -5,7 +5,10 @@ package io.sensable.client.sqlite;
  */
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -14,6 +17,8 @@ import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 
+import java.util.ArrayList;
+
 /**
  * is an implementation of the ContentProvider interface for handling sensor data
  * stored in a SQLite database. It provides methods for querying, inserting, deleting,
@@ -23,13 +28,15 @@ import android.util.Log;
 public class SensableContentProvider extends ContentProvider {
 
     private static final String TAG = SensableContentProvider.class.getSimpleName();
-    private static final String AUTHORITY = "io.sensable.client.contentprovider";
+    public static final String AUTHORITY = "io.sensable.client.contentprovider";
 
     // Used for the UriMacher
     private static final int SENSABLES = 10;
     private static final int SENSABLE_ID = 20;
+    private static final int SAMPLES = 30;
 
     private static final String BASE_PATH = "sensables";
+    private static final String SAMPLES_PATH = "samples";
     public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY + "/" + BASE_PATH);
 
     private static final UriMatcher sURIMatcher = new UriMatcher(UriMatcher.NO_MATCH);
@@ -37,10 +44,25 @@ public class SensableContentProvider extends ContentProvider {
     static {
         sURIMatcher.addURI(AUTHORITY, BASE_PATH, SENSABLES);
         sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/*", SENSABLE_ID);
+        sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/*/" + SAMPLES_PATH, SAMPLES);
+    }
+
+    /**
+     * builds the URI of the cached sample history of a single sensable.
+     *
+     * @param sensorId ID of the sensable whose samples are addressed.
+     *
+     * @returns a URI of the form `content://.../sensables/{sensorId}/samples`.
+     */
+    public static Uri getSamplesUri(String sensorId) {
+        return Uri.parse(CONTENT_URI + "/" + sensorId + "/" + SAMPLES_PATH);
     }
 
     private SensableDatabaseHelper dbHelper;
 
+    // Set while a batch is applied, its operations notify once at the end
+    private final ThreadLocal<Boolean> inBatch = new ThreadLocal<Boolean>();
+
     /**
      * in this code establishes a connection to a database and logs details about the
      * helper used for the connection.
@@ -159,6 +181,13 @@ public class SensableContentProvider extends ContentProvider {
             case SENSABLE_ID:
                 queryBuilder.appendWhere(SavedSensablesTable.COLUMN_SENSOR_ID + "='" + uri.getLastPathSegment() + "'");
                 break;
+            case SAMPLES:
+                queryBuilder.setTables(SavedSamplesTable.NAME);
+                queryBuilder.appendWhere(SavedSamplesTable.COLUMN_SENSOR_ID + "='" + uri.getPathSegments().get(1) + "'");
+                if (TextUtils.isEmpty(sortOrder)) {
+                    sortOrder = SavedSamplesTable.COLUMN_TIMESTAMP + " ASC";
+                }
+                break;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
         }
@@ -237,13 +266,53 @@ public class SensableContentProvider extends ContentProvider {
             case SENSABLES:
                 id = sqlDB.insert(SavedSensablesTable.NAME, null, values);
                 break;
+            case SAMPLES:
+                id = sqlDB.insertWithOnConflict(SavedSamplesTable.NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
         return Uri.parse(CONTENT_URI + "/" + id);
     }
 
+    /**
+     * appends a batch of samples to the sample cache of a sensable inside a single
+     * transaction, so a refresh costs one disk sync and one change notification rather
+     * than one per sample. Samples that are already cached are ignored.
+     *
+     * @param uri samples URI of the sensable, see `getSamplesUri`.
+     *
+     * @param values serialized samples to cache.
+     *
+     * @returns the number of samples that were newly cached.
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        int uriType = sURIMatcher.match(uri);
+        if (uriType != SAMPLES) {
+            return super.bulkInsert(uri, values);
+        }
+
+        SQLiteDatabase sqlDB = dbHelper.getWritableDatabase();
+        int rowsInserted = 0;
+        sqlDB.beginTransaction();
+        try {
+            for (ContentValues value : values) {
+                if (sqlDB.insertWithOnConflict(SavedSamplesTable.NAME, null, value, SQLiteDatabase.CONFLICT_IGNORE) != -1) {
+                    rowsInserted++;
+                }
+            }
+            sqlDB.setTransactionSuccessful();
+        } finally {
+            sqlDB.endTransaction();
+        }
+        if (rowsInserted > 0) {
+            notifyChange(uri);
+        }
+        return rowsInserted;
+    }
+
     /**
      * in Java is a method that deletes data from a SQLite database based on a given URI
      * and selection criteria. It retrieves the type of the URI, deletes data from the
@@ -307,11 +376,17 @@ public class SensableContentProvider extends ContentProvider {
                 } else {
                     rowsDeleted = sqlDB.delete(SavedSensablesTable.NAME, SavedSensablesTable.COLUMN_SENSOR_ID + "='" + id + "' and " + selection, selectionArgs);
                 }
+                // The cached history is only kept for favourites
+                sqlDB.delete(SavedSamplesTable.NAME, SavedSamplesTable.COLUMN_SENSOR_ID + "='" + id + "'", null);
+                break;
+            case SAMPLES:
+                rowsDeleted = sqlDB.delete(SavedSamplesTable.NAME,
+                        SavedSamplesTable.COLUMN_SENSOR_ID + "='" + uri.getPathSegments().get(1) + "'", null);
                 break;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
         return rowsDeleted;
     }
 
@@ -404,8 +479,40 @@ public class SensableContentProvider extends ContentProvider {
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
         return rowsUpdated;
     }
 
-}
\ No newline at end of file
+    /**
+     * applies a batch of operations, e.g. a refresh of every favourite, inside a single
+     * transaction. Observers are notified once for the whole provider after the batch
+     * has been committed instead of once per operation.
+     *
+     * @param operations operations to apply, in order.
+     *
+     * @returns the results of the operations.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+        SQLiteDatabase sqlDB = dbHelper.getWritableDatabase();
+        ContentProviderResult[] results;
+        inBatch.set(Boolean.TRUE);
+        sqlDB.beginTransaction();
+        try {
+            results = super.applyBatch(operations);
+            sqlDB.setTransactionSuccessful();
+        } finally {
+            sqlDB.endTransaction();
+            inBatch.set(null);
+        }
+        getContext().getContentResolver().notifyChange(CONTENT_URI, null);
+        return results;
+    }
+
+    private void notifyChange(Uri uri) {
+        if (inBatch.get() == null) {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+}
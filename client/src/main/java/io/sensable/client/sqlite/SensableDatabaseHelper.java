@@ -1,6 +1,7 @@
 package io.sensable.client.sqlite;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import io.sensable.client.settings.Config;
@@ -86,6 +87,10 @@ public class SensableDatabaseHelper extends SQLiteOpenHelper {
 
         SavedSensablesTable.onCreate(db);
         ScheduledSensablesTable.onCreate(db);
+        SavedSamplesTable.onCreate(db);
+        AcknowledgedUploadsTable.onCreate(db);
+        OutboundSamplesTable.onCreate(db);
+        UploadStatsTable.onCreate(db);
 
     }
 
@@ -109,6 +114,29 @@ public class SensableDatabaseHelper extends SQLiteOpenHelper {
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         SavedSensablesTable.onUpgrade(db, oldVersion, newVersion);
         ScheduledSensablesTable.onUpgrade(db, oldVersion, newVersion);
+        SavedSamplesTable.onUpgrade(db, oldVersion, newVersion);
+        AcknowledgedUploadsTable.onUpgrade(db, oldVersion, newVersion);
+        OutboundSamplesTable.onUpgrade(db, oldVersion, newVersion);
+        UploadStatsTable.onUpgrade(db, oldVersion, newVersion);
+    }
+
+    /**
+     * returns whether a table exists, so upgrades can alter tables kept from an older
+     * version.
+     *
+     * @param database database to look in.
+     *
+     * @param name name of the table.
+     *
+     * @returns true if the table exists.
+     */
+    static boolean tableExists(SQLiteDatabase database, String name) {
+        Cursor cursor = database.rawQuery("select name from sqlite_master where type='table' and name=?", new String[]{name});
+        try {
+            return cursor.getCount() > 0;
+        } finally {
+            cursor.close();
+        }
     }
 
 }
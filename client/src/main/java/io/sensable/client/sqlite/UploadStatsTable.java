@@ -0,0 +1,47 @@
+package io.sensable.client.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * is a SQLite table holding the upload telemetry, one row per metric with its count,
+ * sum, maximum and histogram buckets, so the numbers survive process restarts.
+ */
+public class UploadStatsTable {
+
+    public static final String NAME = "upload_stats";
+    public static final String COLUMN_METRIC = "_id";
+    public static final String COLUMN_COUNT = "stat_count";
+    public static final String COLUMN_SUM = "stat_sum";
+    public static final String COLUMN_MAX = "stat_max";
+    public static final String COLUMN_BUCKETS = "stat_buckets";
+
+    private static final String DATABASE_CREATE = "create table if not exists " + NAME + "(" + COLUMN_METRIC + " text primary key, "
+            + COLUMN_COUNT + " integer not null, "
+            + COLUMN_SUM + " integer not null, "
+            + COLUMN_MAX + " integer not null, "
+            + COLUMN_BUCKETS + " text not null" + ");";
+
+    /**
+     * executes the SQL statement that creates the table.
+     *
+     * @param database SQLite database in which the table is created.
+     */
+    public static void onCreate(SQLiteDatabase database) {
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    /**
+     * keeps the statistics across upgrades. Their schema has not changed since they
+     * were introduced, so only a missing table is created.
+     *
+     * @param database SQLite database that is being upgraded.
+     *
+     * @param oldVersion previous version of the database schema.
+     *
+     * @param newVersion new version of the database schema.
+     */
+    public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        onCreate(database);
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.sensable.client.upload;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiManager;
+import android.os.BatteryManager;
+import android.telephony.TelephonyManager;
+
+/**
+ * reads the `DeviceConditions` from the Android system services.
+ */
+public class AndroidDeviceConditions implements DeviceConditions {
+
+    private final Context context;
+    private final ConnectivityManager connectivityManager;
+
+    public AndroidDeviceConditions(Context context) {
+        this.context = context.getApplicationContext();
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    @Override
+    public boolean isConnected() {
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    @Override
+    public boolean isMetered() {
+        return connectivityManager.isActiveNetworkMetered();
+    }
+
+    /**
+     * returns the Wi-Fi signal level, or for mobile networks an estimate from the
+     * network generation as the cellular signal strength is only reported through a
+     * listener.
+     */
+    @Override
+    public int getSignalLevel() {
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return SIGNAL_NONE;
+        }
+        if (networkInfo.getType() == ConnectivityManager.TYPE_WIFI) {
+            WifiManager wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+            return WifiManager.calculateSignalLevel(wifiManager.getConnectionInfo().getRssi(), SIGNAL_GREAT + 1);
+        }
+        switch (networkInfo.getSubtype()) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+                return 1;
+            case TelephonyManager.NETWORK_TYPE_LTE:
+                return 3;
+            default:
+                return 2;
+        }
+    }
+
+    @Override
+    public boolean isCharging() {
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) {
+            return false;
+        }
+        int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        return status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+
+}
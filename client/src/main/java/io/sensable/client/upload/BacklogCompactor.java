@@ -0,0 +1,219 @@
+package io.sensable.client.upload;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import io.sensable.client.settings.Config;
+import io.sensable.client.sqlite.OutboundSamplesTable;
+import io.sensable.client.sqlite.SensableDatabaseHelper;
+import io.sensable.model.Sample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * keeps the outbound queue bounded while the device stays offline. Once the queue holds
+ * more than `Config.BACKLOG_MAX_SAMPLES` samples, or at least
+ * `Config.BACKLOG_COMPACT_MIN_SAMPLES` with the oldest older than
+ * `Config.BACKLOG_COMPACT_AGE_MILLIS`, the old samples of each sensable are replaced by
+ * one rollup per time bucket carrying their min, max, count-weighted mean and count.
+ * Rollups take the queue position of the oldest sample they replace, so the drain order
+ * is unchanged. While the queue is still too long the buckets are doubled, up to a day.
+ * Only samples that were never sent are compacted: one whose upload failed after it
+ * may have reached the server could already be counted there, and a rollup would count
+ * it a second time.
+ */
+public class BacklogCompactor {
+
+    private static final String TAG = BacklogCompactor.class.getSimpleName();
+
+    private static final long MIN_BUCKET_MILLIS = 60 * 60 * 1000;
+    private static final long MAX_BUCKET_MILLIS = 24 * 60 * 60 * 1000;
+
+    // Younger samples most likely still have their first upload in flight
+    private static final long IN_FLIGHT_GRACE_MILLIS = 60 * 1000;
+
+    private final OutboundQueue outboundQueue;
+    private final SensableDatabaseHelper dbHelper;
+
+    /**
+     * is one bucket of queued samples of a sensable, as summarised by SQLite.
+     */
+    private static class Bucket {
+        String sensorId;
+        long start;
+        long firstId;
+        double min;
+        double max;
+        double mean;
+        int count;
+        long enqueuedAt;
+        long flushBy;
+    }
+
+    /**
+     * @param context context used to reach the local store.
+     */
+    public BacklogCompactor(Context context) {
+        this.outboundQueue = new OutboundQueue(context);
+        this.dbHelper = SensableDatabaseHelper.getHelper(context);
+    }
+
+    /**
+     * compacts the queue if it is over its size or age limit. Must not be called on the
+     * main thread.
+     *
+     * @returns the number of queue rows removed.
+     */
+    public int compact() {
+        long size = outboundQueue.size();
+        long now = System.currentTimeMillis();
+        if (!overLimit(size, now)) {
+            return 0;
+        }
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        int removed = 0;
+        long bucketMillis = MIN_BUCKET_MILLIS;
+        while (true) {
+            removed += compactUpTo(db, cutoffId(db, size, now), bucketMillis);
+            size = outboundQueue.size();
+            if (size <= Config.BACKLOG_MAX_SAMPLES || bucketMillis >= MAX_BUCKET_MILLIS) {
+                break;
+            }
+            bucketMillis = Math.min(bucketMillis * 2, MAX_BUCKET_MILLIS);
+        }
+        Log.d(TAG, "Compacted " + removed + " queued samples into rollups, " + size + " left, buckets of " + bucketMillis + "ms");
+        return removed;
+    }
+
+    private boolean overLimit(long size, long now) {
+        if (size > Config.BACKLOG_MAX_SAMPLES) {
+            return true;
+        }
+        if (size < Config.BACKLOG_COMPACT_MIN_SAMPLES) {
+            return false;
+        }
+        long oldest = outboundQueue.oldestEnqueuedAt();
+        return oldest > 0 && now - oldest > Config.BACKLOG_COMPACT_AGE_MILLIS;
+    }
+
+    /**
+     * returns the last queue ID that may be compacted: everything older than the age
+     * limit if the queue is long enough and, if the queue is too long, everything but its
+     * newest half of the cap, but never a sample that may still be uploading.
+     */
+    private long cutoffId(SQLiteDatabase db, long size, long now) {
+        long cutoff = size >= Config.BACKLOG_COMPACT_MIN_SAMPLES
+                ? maxIdEnqueuedBefore(db, now - Config.BACKLOG_COMPACT_AGE_MILLIS) : 0;
+        if (size > Config.BACKLOG_MAX_SAMPLES) {
+            Cursor cursor = db.query(OutboundSamplesTable.NAME, new String[]{OutboundSamplesTable.COLUMN_ID}, null, null,
+                    null, null, OutboundSamplesTable.COLUMN_ID + " DESC", (Config.BACKLOG_MAX_SAMPLES / 2) + ",1");
+            try {
+                if (cursor.moveToFirst()) {
+                    cutoff = Math.max(cutoff, cursor.getLong(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return Math.min(cutoff, maxIdEnqueuedBefore(db, now - IN_FLIGHT_GRACE_MILLIS));
+    }
+
+    private long maxIdEnqueuedBefore(SQLiteDatabase db, long time) {
+        Cursor cursor = db.rawQuery("select max(" + OutboundSamplesTable.COLUMN_ID + ") from " + OutboundSamplesTable.NAME
+                + " where " + OutboundSamplesTable.COLUMN_ENQUEUED_AT + "<?", new String[]{String.valueOf(time)});
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * replaces every bucket with more than one unsent row up to the cutoff by a single
+     * rollup.
+     *
+     * @returns the number of rows removed.
+     */
+    private int compactUpTo(SQLiteDatabase db, long cutoffId, long bucketMillis) {
+        if (cutoffId <= 0) {
+            return 0;
+        }
+        int removed = 0;
+        for (Bucket bucket : loadBuckets(db, cutoffId, bucketMillis)) {
+            db.beginTransaction();
+            try {
+                int deleted = db.delete(OutboundSamplesTable.NAME, OutboundSamplesTable.COLUMN_ID + "<=? AND "
+                                + OutboundSamplesTable.COLUMN_ATTEMPTED + "=0 AND "
+                                + OutboundSamplesTable.COLUMN_SENSOR_ID + "=? AND "
+                                + OutboundSamplesTable.COLUMN_TIMESTAMP + ">=? AND "
+                                + OutboundSamplesTable.COLUMN_TIMESTAMP + "<?",
+                        new String[]{String.valueOf(cutoffId), bucket.sensorId, String.valueOf(bucket.start),
+                                String.valueOf(bucket.start + bucketMillis)});
+                if (db.insert(OutboundSamplesTable.NAME, null, serializeRollup(bucket, bucketMillis)) != -1) {
+                    db.setTransactionSuccessful();
+                    removed += deleted - 1;
+                }
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return removed;
+    }
+
+    private List<Bucket> loadBuckets(SQLiteDatabase db, long cutoffId, long bucketMillis) {
+        String value = "coalesce(%s," + OutboundSamplesTable.COLUMN_VALUE + ")";
+        Cursor cursor = db.rawQuery("select " + OutboundSamplesTable.COLUMN_SENSOR_ID + ", "
+                + "(" + OutboundSamplesTable.COLUMN_TIMESTAMP + "/" + bucketMillis + ")*" + bucketMillis + " as bucket, "
+                + "min(" + OutboundSamplesTable.COLUMN_ID + "), "
+                + "min(" + String.format(value, OutboundSamplesTable.COLUMN_MIN) + "), "
+                + "max(" + String.format(value, OutboundSamplesTable.COLUMN_MAX) + "), "
+                + "sum(" + OutboundSamplesTable.COLUMN_VALUE + "*" + OutboundSamplesTable.COLUMN_COUNT + ")/sum(" + OutboundSamplesTable.COLUMN_COUNT + "), "
+                + "sum(" + OutboundSamplesTable.COLUMN_COUNT + "), "
+                + "min(" + OutboundSamplesTable.COLUMN_ENQUEUED_AT + "), "
+                + "min(" + OutboundSamplesTable.COLUMN_FLUSH_BY + ")"
+                + " from " + OutboundSamplesTable.NAME
+                + " where " + OutboundSamplesTable.COLUMN_ID + "<=?"
+                + " and " + OutboundSamplesTable.COLUMN_ATTEMPTED + "=0"
+                + " group by " + OutboundSamplesTable.COLUMN_SENSOR_ID + ", bucket"
+                + " having count(*)>1", new String[]{String.valueOf(cutoffId)});
+        List<Bucket> buckets = new ArrayList<Bucket>();
+        try {
+            while (cursor.moveToNext()) {
+                Bucket bucket = new Bucket();
+                bucket.sensorId = cursor.getString(0);
+                bucket.start = cursor.getLong(1);
+                bucket.firstId = cursor.getLong(2);
+                bucket.min = cursor.getDouble(3);
+                bucket.max = cursor.getDouble(4);
+                bucket.mean = cursor.getDouble(5);
+                bucket.count = cursor.getInt(6);
+                bucket.enqueuedAt = cursor.getLong(7);
+                bucket.flushBy = cursor.getLong(8);
+                buckets.add(bucket);
+            }
+        } finally {
+            cursor.close();
+        }
+        return buckets;
+    }
+
+    private ContentValues serializeRollup(Bucket bucket, long bucketMillis) {
+        Sample rollup = new Sample();
+        rollup.setTimestamp(bucket.start);
+        rollup.setValue(bucket.mean);
+        rollup.setMin(bucket.min);
+        rollup.setMax(bucket.max);
+        rollup.setCount(bucket.count);
+        ContentValues values = OutboundSamplesTable.serializeSampleForSqlLite(bucket.sensorId,
+                IdempotencyKey.forRollup(bucket.sensorId, bucket.start, bucketMillis, bucket.firstId, bucket.count), rollup);
+        // Keep the queue position and age of the oldest sample replaced
+        values.put(OutboundSamplesTable.COLUMN_ID, bucket.firstId);
+        values.put(OutboundSamplesTable.COLUMN_ENQUEUED_AT, bucket.enqueuedAt);
+        values.put(OutboundSamplesTable.COLUMN_FLUSH_BY, bucket.flushBy);
+        return values;
+    }
+
+}
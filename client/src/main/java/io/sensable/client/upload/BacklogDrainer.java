@@ -0,0 +1,231 @@
+package io.sensable.client.upload;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import io.sensable.SensableService;
+import io.sensable.client.CredentialProvider;
+import io.sensable.client.network.RequestDispatcher;
+import io.sensable.client.network.SensableClient;
+import io.sensable.client.network.SensableFuture;
+import io.sensable.model.SampleBatch;
+import io.sensable.model.SampleResponse;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * works off the outbound queue in batched chunks without swamping the device or the
+ * server. At most `MAX_IN_FLIGHT` chunks are uploading at any time, and the chunk size
+ * follows additive-increase/multiplicative-decrease: it grows by a step after every
+ * chunk acknowledged within `TARGET_LATENCY_MILLIS`, up to the batch size of the
+ * `UploadPlan` for the device conditions, and halves after a slow or failed one. After `MAX_FAILURES` failures no new chunks are started, whatever is left stays
+ * queued for the next drain. Deferred samples are only taken once they are due, unless
+ * the `DeferredUploadGate` is open. Queue depth and age are reported before and after.
+ */
+public class BacklogDrainer {
+
+    private static final String TAG = BacklogDrainer.class.getSimpleName();
+
+    private static final int MAX_IN_FLIGHT = 2;
+    private static final int MIN_CHUNK = 1;
+    private static final int CHUNK_STEP = 25;
+    private static final long TARGET_LATENCY_MILLIS = 5 * 1000;
+    private static final int MAX_FAILURES = 3;
+
+    // Younger samples most likely still have their first upload in flight
+    private static final long IN_FLIGHT_GRACE_MILLIS = 60 * 1000;
+
+    private final Context context;
+    private final OutboundQueue outboundQueue;
+    private final UploadLedger uploadLedger;
+    private final SensableService service;
+    private final DeviceConditions conditions;
+    private final UploadStats uploadStats;
+    private final int maxChunk;
+
+    private int chunkSize;
+
+    /**
+     * is a chunk on the wire.
+     */
+    private static class Chunk {
+        final List<OutboundSample> samples;
+        final SensableFuture<SampleResponse> future;
+        final long startedAt;
+
+        Chunk(List<OutboundSample> samples, SensableFuture<SampleResponse> future, long startedAt) {
+            this.samples = samples;
+            this.future = future;
+            this.startedAt = startedAt;
+        }
+    }
+
+    /**
+     * @param context context used to reach the local store.
+     */
+    public BacklogDrainer(Context context) {
+        this(context, new AndroidDeviceConditions(context));
+    }
+
+    /**
+     * @param context context used to reach the local store.
+     *
+     * @param conditions state of the device deciding whether deferred samples are sent.
+     */
+    public BacklogDrainer(Context context, DeviceConditions conditions) {
+        this(context, conditions, SensableClient.getInstance().getService(RequestDispatcher.Priority.BACKGROUND));
+    }
+
+    /**
+     * @param context context used to reach the local store.
+     *
+     * @param conditions state of the device deciding whether deferred samples are sent.
+     *
+     * @param service service the chunks are uploaded through.
+     */
+    BacklogDrainer(Context context, DeviceConditions conditions, SensableService service) {
+        this.context = context.getApplicationContext();
+        this.conditions = conditions;
+        this.uploadStats = UploadStats.getInstance(context);
+        this.outboundQueue = new OutboundQueue(context);
+        this.uploadLedger = new UploadLedger(context);
+        this.service = service;
+        this.maxChunk = Math.max(MIN_CHUNK, new UploadPolicy().plan(conditions).getBatchSize());
+        this.chunkSize = Math.min(CHUNK_STEP, maxChunk);
+    }
+
+    /**
+     * drains the queue, blocking until the last chunk has been answered. Must not be
+     * called on the main thread.
+     *
+     * @returns the number of samples uploaded.
+     */
+    public int drain() {
+        reportBacklog();
+        String accessToken = CredentialProvider.getInstance(context).getAccessToken();
+        long now = System.currentTimeMillis();
+        long graceCutoff = now - IN_FLIGHT_GRACE_MILLIS;
+        // While uploading is expensive only samples past their flush-by time are sent
+        long dueBy = new DeferredUploadGate().isOpen(conditions) ? Long.MAX_VALUE : now;
+        LinkedList<Chunk> inFlight = new LinkedList<Chunk>();
+        long lastTakenId = 0;
+        boolean exhausted = false;
+        int failures = 0;
+        int uploaded = 0;
+
+        while (true) {
+            while (!exhausted && failures < MAX_FAILURES && inFlight.size() < MAX_IN_FLIGHT) {
+                List<OutboundSample> samples = takeChunk(lastTakenId, graceCutoff, dueBy);
+                if (samples.isEmpty()) {
+                    exhausted = true;
+                    break;
+                }
+                lastTakenId = samples.get(samples.size() - 1).getId();
+                inFlight.add(send(samples, accessToken));
+            }
+            if (inFlight.isEmpty()) {
+                break;
+            }
+
+            Chunk chunk = inFlight.removeFirst();
+            try {
+                chunk.future.get();
+                long latencyMillis = SystemClock.elapsedRealtime() - chunk.startedAt;
+                long ackedAt = System.currentTimeMillis();
+                outboundQueue.acknowledge(uploadLedger, chunk.samples);
+                for (OutboundSample sample : chunk.samples) {
+                    uploadStats.record(UploadStats.ENQUEUE_TO_ACK_MILLIS, ackedAt - sample.getEnqueuedAt());
+                }
+                uploaded += chunk.samples.size();
+                if (latencyMillis <= TARGET_LATENCY_MILLIS) {
+                    chunkSize = Math.min(maxChunk, chunkSize + CHUNK_STEP);
+                } else {
+                    chunkSize = Math.max(MIN_CHUNK, chunkSize / 2);
+                }
+                Log.d(TAG, chunk.samples.size() + " samples in " + latencyMillis + "ms, next chunk " + chunkSize);
+            } catch (Exception e) {
+                outboundQueue.markAttempted(keysOf(chunk.samples), e);
+                failures++;
+                chunkSize = Math.max(MIN_CHUNK, chunkSize / 2);
+                Log.e(TAG, "Chunk of " + chunk.samples.size() + " failed, next chunk " + chunkSize + ": " + e.toString());
+            }
+        }
+        Log.d(TAG, "Drained " + uploaded + " samples, " + failures + " failed chunks");
+        reportBacklog();
+        uploadStats.flush();
+        return uploaded;
+    }
+
+    /**
+     * takes the next chunk off the queue, dropping samples that were acknowledged
+     * already and stopping at samples that are too young. Each batch of candidates is
+     * checked against the ledger with one query.
+     */
+    private List<OutboundSample> takeChunk(long afterId, long graceCutoff, long dueBy) {
+        List<OutboundSample> samples = new LinkedList<OutboundSample>();
+        while (samples.size() < chunkSize) {
+            List<OutboundSample> candidates = outboundQueue.peekDueAfter(afterId, dueBy, chunkSize - samples.size());
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Set<String> acknowledged = uploadLedger.acknowledgedOf(keysOf(candidates));
+            List<Long> delivered = new ArrayList<Long>();
+            boolean tooYoung = false;
+            for (OutboundSample candidate : candidates) {
+                if (candidate.getEnqueuedAt() > graceCutoff) {
+                    tooYoung = true;
+                    break;
+                }
+                afterId = candidate.getId();
+                if (acknowledged.contains(candidate.getIdempotencyKey())) {
+                    delivered.add(candidate.getId());
+                } else {
+                    samples.add(candidate);
+                }
+            }
+            outboundQueue.removeAll(delivered);
+            if (tooYoung) {
+                break;
+            }
+        }
+        return samples;
+    }
+
+    private Chunk send(List<OutboundSample> samples, String accessToken) {
+        final SampleBatch sampleBatch = new SampleBatch();
+        sampleBatch.setAccessToken(accessToken);
+        uploadStats.record(UploadStats.BATCH_SIZE, samples.size());
+        for (OutboundSample sample : samples) {
+            sampleBatch.add(new SampleBatch.Entry(sample.getSensorId(), sample.getIdempotencyKey(), sample.getSample()));
+        }
+        SensableFuture<SampleResponse> future = SensableFuture.submit(RequestDispatcher.Priority.BACKGROUND, new Callable<SampleResponse>() {
+            @Override
+            public SampleResponse call() {
+                return service.saveSamples(IdempotencyKey.forBatch(sampleBatch), sampleBatch);
+            }
+        });
+        return new Chunk(samples, future, SystemClock.elapsedRealtime());
+    }
+
+    private static List<String> keysOf(List<OutboundSample> samples) {
+        List<String> keys = new ArrayList<String>(samples.size());
+        for (OutboundSample sample : samples) {
+            keys.add(sample.getIdempotencyKey());
+        }
+        return keys;
+    }
+
+    private void reportBacklog() {
+        long oldest = outboundQueue.oldestEnqueuedAt();
+        long depth = outboundQueue.size();
+        long ageMillis = oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+        UploadMetrics.getInstance().recordBacklog(depth, ageMillis);
+        uploadStats.record(UploadStats.QUEUE_DEPTH, depth);
+        uploadStats.record(UploadStats.QUEUE_AGE_MILLIS, ageMillis);
+    }
+
+}
@@ -0,0 +1,25 @@
+package io.sensable.client.upload;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * starts a drain when the device is plugged in or changes networks, so deferred samples
+ * go out as soon as uploading becomes cheap rather than with the next scheduler tick.
+ */
+public class DeferredFlushReceiver extends BroadcastReceiver {
+
+    private static final String TAG = DeferredFlushReceiver.class.getSimpleName();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (new DeferredUploadGate().isOpen(new AndroidDeviceConditions(context))
+                && new OutboundQueue(context).size() > 0) {
+            Log.d(TAG, "Flushing deferred samples on " + intent.getAction());
+            OutboundDrainService.start(context);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package io.sensable.client.upload;
+
+import io.sensable.client.settings.Config;
+import io.sensable.model.ScheduledSensable;
+
+/**
+ * decides when the samples of `UPLOAD_DEFERRED` sensables may leave the outbound queue.
+ * They are held until the device is charging or on an unmetered network, so they ride
+ * along when uploading is cheap, but never longer than their staleness bound. It only
+ * depends on `DeviceConditions`, so it can be driven by fake conditions.
+ */
+public class DeferredUploadGate {
+
+    /**
+     * returns whether deferred samples may be uploaded now, whether due or not.
+     *
+     * @param conditions current state of the device.
+     *
+     * @returns true if the device is connected and charging or on an unmetered network.
+     */
+    public boolean isOpen(DeviceConditions conditions) {
+        return conditions.isConnected() && (conditions.isCharging() || !conditions.isMetered());
+    }
+
+    /**
+     * returns the time by which a new sample of a sensable has to be uploaded.
+     *
+     * @param scheduledSensable sensable the sample belongs to.
+     *
+     * @param now time the sample was taken, in milliseconds since the epoch.
+     *
+     * @returns 0 for a sensable that uploads immediately, otherwise the time the
+     * staleness bound runs out.
+     */
+    public long flushBy(ScheduledSensable scheduledSensable, long now) {
+        if (scheduledSensable.getUploadClass() != ScheduledSensable.UPLOAD_DEFERRED) {
+            return 0;
+        }
+        long maxStaleness = scheduledSensable.getMaxStalenessMillis() > 0
+                ? scheduledSensable.getMaxStalenessMillis()
+                : Config.DEFERRED_MAX_STALENESS_MILLIS;
+        return now + maxStaleness;
+    }
+
+}
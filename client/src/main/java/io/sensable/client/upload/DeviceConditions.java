@@ -0,0 +1,33 @@
+package io.sensable.client.upload;
+
+/**
+ * describes the device state the upload policy depends on. It is an interface so the
+ * policy can be driven by fake conditions in isolation from Android.
+ */
+public interface DeviceConditions {
+
+    public static final int SIGNAL_NONE = 0;
+    public static final int SIGNAL_GREAT = 4;
+
+    /**
+     * @returns true if any network is connected.
+     */
+    boolean isConnected();
+
+    /**
+     * @returns true if the active network is metered, e.g. cellular data.
+     */
+    boolean isMetered();
+
+    /**
+     * @returns the signal quality of the active network between `SIGNAL_NONE` and
+     * `SIGNAL_GREAT`.
+     */
+    int getSignalLevel();
+
+    /**
+     * @returns true if the device is plugged in.
+     */
+    boolean isCharging();
+
+}
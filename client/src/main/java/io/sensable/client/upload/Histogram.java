@@ -0,0 +1,136 @@
+package io.sensable.client.upload;
+
+/**
+ * is a histogram of non-negative values with power-of-two buckets, so it stays a fixed
+ * few dozen counters however many values are recorded. Bucket 0 counts zeros, bucket
+ * `i` the values from 2^(i-1) to 2^i - 1. Percentiles are reported as the upper bound of
+ * their bucket, i.e. at most twice the true value.
+ */
+public class Histogram {
+
+    static final int BUCKETS = 40;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    public Histogram() {
+    }
+
+    /**
+     * @param other histogram to copy.
+     */
+    public Histogram(Histogram other) {
+        System.arraycopy(other.buckets, 0, buckets, 0, BUCKETS);
+        count = other.count;
+        sum = other.sum;
+        max = other.max;
+    }
+
+    /**
+     * restores a histogram from its stored form.
+     *
+     * @param count number of values recorded.
+     *
+     * @param sum sum of the values.
+     *
+     * @param max largest value.
+     *
+     * @param encodedBuckets bucket counts as returned by `encodeBuckets`.
+     *
+     * @returns the histogram.
+     */
+    public static Histogram decode(long count, long sum, long max, String encodedBuckets) {
+        Histogram histogram = new Histogram();
+        histogram.count = count;
+        histogram.sum = sum;
+        histogram.max = max;
+        String[] counts = encodedBuckets.split(",");
+        for (int i = 0; i < counts.length && i < BUCKETS; i++) {
+            if (counts[i].length() > 0) {
+                histogram.buckets[i] = Long.parseLong(counts[i]);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * adds a value, negative values count as zero.
+     *
+     * @param value value to record.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * returns an upper bound of the given percentile.
+     *
+     * @param percentile percentile between 0 and 100.
+     *
+     * @returns the upper bound of the bucket holding the percentile, 0 if empty.
+     */
+    public long getPercentile(double percentile) {
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * returns the bucket counts as a comma separated string for storage.
+     *
+     * @returns the encoded buckets, trailing empty buckets left out.
+     */
+    public String encodeBuckets() {
+        int last = BUCKETS - 1;
+        while (last > 0 && buckets[last] == 0) {
+            last--;
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i <= last; i++) {
+            if (i > 0) {
+                encoded.append(',');
+            }
+            encoded.append(buckets[i]);
+        }
+        return encoded.toString();
+    }
+
+    private static int bucketOf(long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    @Override
+    public String toString() {
+        return "n " + count + ", mean " + getMean() + ", p50 " + getPercentile(50) + ", p90 " + getPercentile(90)
+                + ", max " + max;
+    }
+
+}
@@ -0,0 +1,85 @@
+package io.sensable.client.upload;
+
+import io.sensable.model.SampleBatch;
+
+/**
+ * derives the idempotency key sent with a sample upload. The key only depends on the
+ * sensable, the timestamp of the sample and its sequence number, so a retried or
+ * replayed upload carries the same key and sensable.io can drop the duplicate.
+ */
+public class IdempotencyKey {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * builds the idempotency key of a sample.
+     *
+     * @param sensorId ID of the sensable the sample belongs to.
+     *
+     * @param timestamp timestamp of the sample.
+     *
+     * @param sequence sequence number of the sample within the sensable.
+     *
+     * @returns a key of the form `{sensorId}-{timestamp}-{sequence}`.
+     */
+    public static String forSample(String sensorId, long timestamp, long sequence) {
+        return sensorId + "-" + timestamp + "-" + sequence;
+    }
+
+    /**
+     * builds the key of a rollup that replaces the queued samples of one time bucket.
+     * Compacting the same samples again yields the same key, while a bucket that has
+     * taken in later samples gets a new one, so it is not dropped as a duplicate of a
+     * rollup of the same bucket uploaded before.
+     *
+     * @param sensorId ID of the sensable.
+     *
+     * @param bucketStart start of the bucket in milliseconds since the epoch.
+     *
+     * @param bucketMillis length of the bucket.
+     *
+     * @param firstId queue ID of the oldest sample replaced.
+     *
+     * @param count number of readings the rollup stands for.
+     *
+     * @returns the key of the rollup.
+     */
+    public static String forRollup(String sensorId, long bucketStart, long bucketMillis, long firstId, int count) {
+        return sensorId + "-rollup-" + bucketStart + "-" + bucketMillis + "-" + firstId + "-" + count;
+    }
+
+    /**
+     * builds the key of a batched upload from the keys of its samples, so resending the
+     * same batch carries the same key.
+     *
+     * @param sampleBatch batch to upload.
+     *
+     * @returns a key of the form `batch-{hash}`.
+     */
+    public static String forBatch(SampleBatch sampleBatch) {
+        StringBuilder keys = new StringBuilder();
+        for (SampleBatch.Entry entry : sampleBatch.getSamples()) {
+            keys.append(entry.getIdempotencyKey()).append(',');
+        }
+        return "batch-" + Long.toHexString(hash(keys.toString()));
+    }
+
+    /**
+     * hashes a key into 64 bits with FNV-1a, the compact form in which acknowledged keys
+     * are recorded.
+     *
+     * @param key idempotency key to hash.
+     *
+     * @returns the 64-bit hash of `key`.
+     */
+    public static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
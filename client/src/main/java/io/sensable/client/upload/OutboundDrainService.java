@@ -0,0 +1,35 @@
+package io.sensable.client.upload;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * uploads the samples left in the outbound queue, e.g. after a period offline or a
+ * reboot, through a `BacklogDrainer`. Whatever cannot be uploaded stays queued for the
+ * next drain, a `BacklogCompactor` keeps it from growing without bound.
+ */
+public class OutboundDrainService extends IntentService {
+
+    private static final String TAG = OutboundDrainService.class.getSimpleName();
+
+    public OutboundDrainService() {
+        super(TAG);
+    }
+
+    /**
+     * starts draining the outbound queue in the background.
+     *
+     * @param context context used to start the service.
+     */
+    public static void start(Context context) {
+        context.startService(new Intent(context, OutboundDrainService.class));
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        new BacklogCompactor(this).compact();
+        new BacklogDrainer(this).drain();
+    }
+
+}
@@ -0,0 +1,251 @@
+package io.sensable.client.upload;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+import io.sensable.client.network.CircuitOpenException;
+import io.sensable.client.sqlite.OutboundSamplesTable;
+import io.sensable.client.sqlite.SensableDatabaseHelper;
+import io.sensable.model.Sample;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * is the durable queue of samples waiting for upload, backed by the `outbound_samples`
+ * table. Each append is a single SQLite insert, so it is either fully on disk or not
+ * at all when the process dies, and a sample leaves the queue only once its upload has
+ * been acknowledged.
+ */
+public class OutboundQueue {
+
+    private final SensableDatabaseHelper dbHelper;
+
+    public OutboundQueue(Context context) {
+        dbHelper = SensableDatabaseHelper.getHelper(context);
+    }
+
+    /**
+     * appends a captured sample. Appending the same idempotency key twice keeps the
+     * first entry.
+     *
+     * @param sensorId ID of the sensable the sample belongs to.
+     *
+     * @param idempotencyKey key the sample is uploaded with.
+     *
+     * @param sample sample to upload.
+     */
+    public void enqueue(String sensorId, String idempotencyKey, Sample sample) {
+        enqueue(sensorId, idempotencyKey, sample, 0);
+    }
+
+    /**
+     * appends a captured sample whose upload may be deferred, see `DeferredUploadGate`.
+     *
+     * @param sensorId ID of the sensable the sample belongs to.
+     *
+     * @param idempotencyKey key the sample is uploaded with.
+     *
+     * @param sample sample to upload.
+     *
+     * @param flushBy time in milliseconds since the epoch after which the sample is
+     * uploaded whatever the device state, 0 to upload it with the next drain.
+     */
+    public void enqueue(String sensorId, String idempotencyKey, Sample sample, long flushBy) {
+        ContentValues values = OutboundSamplesTable.serializeSampleForSqlLite(sensorId, idempotencyKey, sample);
+        values.put(OutboundSamplesTable.COLUMN_FLUSH_BY, flushBy);
+        dbHelper.getWritableDatabase().insertWithOnConflict(OutboundSamplesTable.NAME, null, values,
+                SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    /**
+     * returns the oldest queued samples without removing them.
+     *
+     * @param limit maximum number of samples returned.
+     *
+     * @returns up to `limit` samples, oldest first.
+     */
+    public List<OutboundSample> peek(int limit) {
+        return peekAfter(0, limit);
+    }
+
+    /**
+     * returns the oldest queued samples after a given one without removing them, so
+     * several chunks can be taken from the queue before any is acknowledged.
+     *
+     * @param afterId queue ID of the last sample already taken, 0 to start at the head.
+     *
+     * @param limit maximum number of samples returned.
+     *
+     * @returns up to `limit` samples, oldest first.
+     */
+    public List<OutboundSample> peekAfter(long afterId, int limit) {
+        return query(OutboundSamplesTable.COLUMN_ID + ">" + afterId, limit);
+    }
+
+    /**
+     * same as `peekAfter`, but skips deferred samples that are not due yet.
+     *
+     * @param afterId queue ID of the last sample already taken, 0 to start at the head.
+     *
+     * @param now current time in milliseconds since the epoch.
+     *
+     * @param limit maximum number of samples returned.
+     *
+     * @returns up to `limit` due samples, oldest first.
+     */
+    public List<OutboundSample> peekDueAfter(long afterId, long now, int limit) {
+        return query(OutboundSamplesTable.COLUMN_ID + ">" + afterId + " AND "
+                + OutboundSamplesTable.COLUMN_FLUSH_BY + "<=" + now, limit);
+    }
+
+    private List<OutboundSample> query(String selection, int limit) {
+        List<OutboundSample> samples = new ArrayList<OutboundSample>();
+        Cursor cursor = dbHelper.getReadableDatabase().query(OutboundSamplesTable.NAME, null,
+                selection, null, null, null,
+                OutboundSamplesTable.COLUMN_ID + " ASC", String.valueOf(limit));
+        try {
+            while (cursor.moveToNext()) {
+                samples.add(new OutboundSample(
+                        cursor.getLong(cursor.getColumnIndex(OutboundSamplesTable.COLUMN_ID)),
+                        cursor.getString(cursor.getColumnIndex(OutboundSamplesTable.COLUMN_SENSOR_ID)),
+                        cursor.getString(cursor.getColumnIndex(OutboundSamplesTable.COLUMN_IDEMPOTENCY_KEY)),
+                        OutboundSamplesTable.getSample(cursor),
+                        cursor.getLong(cursor.getColumnIndex(OutboundSamplesTable.COLUMN_ENQUEUED_AT))));
+            }
+        } finally {
+            cursor.close();
+        }
+        return samples;
+    }
+
+    /**
+     * removes an acknowledged sample.
+     *
+     * @param idempotencyKey key of the sample.
+     */
+    public void remove(String idempotencyKey) {
+        dbHelper.getWritableDatabase().delete(OutboundSamplesTable.NAME,
+                OutboundSamplesTable.COLUMN_IDEMPOTENCY_KEY + "=?", new String[]{idempotencyKey});
+    }
+
+    /**
+     * removes samples by their queue ID with a single statement.
+     *
+     * @param ids queue IDs of the samples.
+     */
+    public void removeAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        dbHelper.getWritableDatabase().delete(OutboundSamplesTable.NAME,
+                OutboundSamplesTable.COLUMN_ID + " IN (" + TextUtils.join(",", ids) + ")", null);
+    }
+
+    /**
+     * records the given samples as acknowledged and removes them from the queue in one
+     * transaction, so a sample never leaves the queue without being in the ledger.
+     *
+     * @param uploadLedger ledger the acknowledgements are recorded in.
+     *
+     * @param samples acknowledged samples.
+     */
+    public void acknowledge(UploadLedger uploadLedger, List<OutboundSample> samples) {
+        List<String> keys = new ArrayList<String>(samples.size());
+        List<Long> ids = new ArrayList<Long>(samples.size());
+        for (OutboundSample sample : samples) {
+            keys.add(sample.getIdempotencyKey());
+            ids.add(sample.getId());
+        }
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            uploadLedger.acknowledge(keys);
+            removeAll(ids);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * records that an upload of the given samples failed in a way that leaves open
+     * whether sensable.io received them, so they are never replaced by a rollup.
+     *
+     * @param idempotencyKeys keys of the samples of the failed upload.
+     *
+     * @param error error the upload failed with.
+     */
+    public void markAttempted(List<String> idempotencyKeys, Throwable error) {
+        if (!mayHaveReachedServer(error)) {
+            return;
+        }
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(OutboundSamplesTable.COLUMN_ATTEMPTED, 1);
+        db.beginTransaction();
+        try {
+            for (String idempotencyKey : idempotencyKeys) {
+                db.update(OutboundSamplesTable.NAME, values, OutboundSamplesTable.COLUMN_IDEMPOTENCY_KEY + "=?",
+                        new String[]{idempotencyKey});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * tells whether a failed upload may nevertheless have reached the server. Only
+     * failures before a connection was established, and requests refused by an open
+     * circuit, are known not to have.
+     *
+     * @param error error the upload failed with.
+     *
+     * @returns false if the request certainly never left the device.
+     */
+    static boolean mayHaveReachedServer(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnknownHostException || cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException || cause instanceof CircuitOpenException) {
+                return false;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * returns the number of samples waiting for upload.
+     *
+     * @returns the queue depth.
+     */
+    public long size() {
+        return DatabaseUtils.queryNumEntries(dbHelper.getReadableDatabase(), OutboundSamplesTable.NAME);
+    }
+
+    /**
+     * returns when the oldest waiting sample was queued.
+     *
+     * @returns the time in milliseconds since the epoch, 0 if the queue is empty.
+     */
+    public long oldestEnqueuedAt() {
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery("select min(" + OutboundSamplesTable.COLUMN_ENQUEUED_AT
+                + ") from " + OutboundSamplesTable.NAME, null);
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+}
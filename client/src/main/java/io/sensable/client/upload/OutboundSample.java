@@ -0,0 +1,44 @@
+package io.sensable.client.upload;
+
+import io.sensable.model.Sample;
+
+/**
+ * is a sample waiting in the outbound queue together with what is needed to upload it.
+ */
+public class OutboundSample {
+
+    private final long id;
+    private final String sensorId;
+    private final String idempotencyKey;
+    private final Sample sample;
+    private final long enqueuedAt;
+
+    public OutboundSample(long id, String sensorId, String idempotencyKey, Sample sample, long enqueuedAt) {
+        this.id = id;
+        this.sensorId = sensorId;
+        this.idempotencyKey = idempotencyKey;
+        this.sample = sample;
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public Sample getSample() {
+        return sample;
+    }
+
+    public long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+}
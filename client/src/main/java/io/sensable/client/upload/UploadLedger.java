@@ -0,0 +1,130 @@
+package io.sensable.client.upload;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+import android.util.Log;
+import io.sensable.client.sqlite.AcknowledgedUploadsTable;
+import io.sensable.client.sqlite.SensableDatabaseHelper;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * keeps the record of uploads acknowledged by sensable.io, keyed by the hash of their
+ * idempotency key. Checking whether a sample was already delivered is a single primary
+ * key lookup.
+ */
+public class UploadLedger {
+
+    private static final String TAG = UploadLedger.class.getSimpleName();
+
+    // Uploads are never retried for longer than this, older keys can be forgotten
+    private static final long RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private final SensableDatabaseHelper dbHelper;
+
+    public UploadLedger(Context context) {
+        dbHelper = SensableDatabaseHelper.getHelper(context);
+    }
+
+    /**
+     * returns whether the upload with the given key was already acknowledged.
+     *
+     * @param key idempotency key of the upload.
+     *
+     * @returns true if sensable.io acknowledged the upload before.
+     */
+    public boolean isAcknowledged(String key) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.query(AcknowledgedUploadsTable.NAME, new String[]{AcknowledgedUploadsTable.COLUMN_KEY_HASH},
+                AcknowledgedUploadsTable.COLUMN_KEY_HASH + "=" + IdempotencyKey.hash(key), null, null, null, null);
+        try {
+            return cursor.getCount() > 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * returns which of the given uploads were already acknowledged, in a single query.
+     *
+     * @param keys idempotency keys of the uploads.
+     *
+     * @returns the keys among `keys` that sensable.io acknowledged before.
+     */
+    public Set<String> acknowledgedOf(List<String> keys) {
+        Set<String> acknowledged = new HashSet<String>();
+        if (keys.isEmpty()) {
+            return acknowledged;
+        }
+        Map<Long, String> keysByHash = new HashMap<Long, String>();
+        for (String key : keys) {
+            keysByHash.put(IdempotencyKey.hash(key), key);
+        }
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.query(AcknowledgedUploadsTable.NAME, new String[]{AcknowledgedUploadsTable.COLUMN_KEY_HASH},
+                AcknowledgedUploadsTable.COLUMN_KEY_HASH + " IN (" + TextUtils.join(",", keysByHash.keySet()) + ")",
+                null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                acknowledged.add(keysByHash.get(cursor.getLong(0)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return acknowledged;
+    }
+
+    /**
+     * records that the upload with the given key was acknowledged.
+     *
+     * @param key idempotency key of the upload.
+     */
+    public void acknowledge(String key) {
+        ContentValues values = new ContentValues();
+        values.put(AcknowledgedUploadsTable.COLUMN_KEY_HASH, IdempotencyKey.hash(key));
+        values.put(AcknowledgedUploadsTable.COLUMN_ACKNOWLEDGED_AT, System.currentTimeMillis());
+        dbHelper.getWritableDatabase().insertWithOnConflict(AcknowledgedUploadsTable.NAME, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * records that the uploads with the given keys were acknowledged, in one transaction.
+     *
+     * @param keys idempotency keys of the uploads.
+     */
+    public void acknowledge(List<String> keys) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String key : keys) {
+                acknowledge(key);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * forgets acknowledged keys that are older than the retention period.
+     *
+     * @returns the number of forgotten keys.
+     */
+    public int prune() {
+        long cutoff = System.currentTimeMillis() - RETENTION_MILLIS;
+        int rowsDeleted = dbHelper.getWritableDatabase().delete(AcknowledgedUploadsTable.NAME,
+                AcknowledgedUploadsTable.COLUMN_ACKNOWLEDGED_AT + "<" + cutoff, null);
+        if (rowsDeleted > 0) {
+            Log.d(TAG, "Pruned " + rowsDeleted + " acknowledged uploads");
+        }
+        return rowsDeleted;
+    }
+
+}
@@ -0,0 +1,111 @@
+package io.sensable.client.upload;
+
+import android.util.Log;
+
+/**
+ * counts the upload work of the scheduler ticks so the effect of batching can be seen
+ * in the log: how many samples each tick uploaded, how many requests that took compared
+ * to one request per sample, and how long a tick took from start to acknowledgement.
+ * It also keeps the last known depth and age of the outbound backlog.
+ */
+public class UploadMetrics {
+
+    private static final String TAG = UploadMetrics.class.getSimpleName();
+
+    private static UploadMetrics sInstance = null;
+
+    private long ticks;
+    private long samples;
+    private long requests;
+    private long totalLatencyMillis;
+    private long maxLatencyMillis;
+    private long backlogDepth;
+    private long backlogAgeMillis;
+
+    /**
+     * returns the metrics of the process.
+     *
+     * @returns the single `UploadMetrics` instance.
+     */
+    public static synchronized UploadMetrics getInstance() {
+        if (sInstance == null) {
+            sInstance = new UploadMetrics();
+        }
+        return sInstance;
+    }
+
+    /**
+     * records a tick whose upload has been acknowledged.
+     *
+     * @param sampleCount number of samples uploaded.
+     *
+     * @param requestCount number of requests needed.
+     *
+     * @param latencyMillis time from the start of the tick to the acknowledgement.
+     */
+    public synchronized void recordTick(int sampleCount, int requestCount, long latencyMillis) {
+        ticks++;
+        samples += sampleCount;
+        requests += requestCount;
+        totalLatencyMillis += latencyMillis;
+        maxLatencyMillis = Math.max(maxLatencyMillis, latencyMillis);
+        Log.d(TAG, "Tick: " + sampleCount + " samples in " + requestCount + " requests, " + latencyMillis + "ms; " + this);
+    }
+
+    /**
+     * records the state of the outbound queue.
+     *
+     * @param depth number of samples waiting for upload.
+     *
+     * @param ageMillis age of the oldest waiting sample, 0 if none is waiting.
+     */
+    public synchronized void recordBacklog(long depth, long ageMillis) {
+        backlogDepth = depth;
+        backlogAgeMillis = ageMillis;
+        Log.d(TAG, "Backlog: " + depth + " samples, oldest " + (ageMillis / 1000) + "s old");
+    }
+
+    public synchronized long getBacklogDepth() {
+        return backlogDepth;
+    }
+
+    public synchronized long getBacklogAgeMillis() {
+        return backlogAgeMillis;
+    }
+
+    public synchronized long getTicks() {
+        return ticks;
+    }
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    /**
+     * returns the number of requests saved over uploading every sample on its own.
+     *
+     * @returns the requests saved so far.
+     */
+    public synchronized long getRequestsSaved() {
+        return samples - requests;
+    }
+
+    public synchronized long getAverageLatencyMillis() {
+        return ticks == 0 ? 0 : totalLatencyMillis / ticks;
+    }
+
+    public synchronized long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return ticks + " ticks, " + samples + " samples, " + requests + " requests (" + getRequestsSaved()
+                + " saved), latency avg " + getAverageLatencyMillis() + "ms max " + maxLatencyMillis + "ms";
+    }
+
+}
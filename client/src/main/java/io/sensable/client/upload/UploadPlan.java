@@ -0,0 +1,56 @@
+package io.sensable.client.upload;
+
+/**
+ * is the decision of the `UploadPolicy` for the current conditions: how many samples
+ * to send per request, how long samples may wait before they are flushed, and how hard
+ * to compress the request bodies.
+ */
+public class UploadPlan {
+
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int compressionLevel;
+
+    public UploadPlan(int batchSize, long flushIntervalMillis, int compressionLevel) {
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * tells whether queued samples have to go out now or may wait for the next chance
+     * to upload, i.e. whether the queue has reached the batch size or its oldest sample
+     * would wait longer than the flush interval.
+     *
+     * @param queued number of samples in the queue.
+     *
+     * @param oldestEnqueuedAt time the oldest sample was queued, in milliseconds since
+     * the epoch.
+     *
+     * @param nextChance time of the next chance to upload, e.g. the next scheduler
+     * wake-up, 0 if there is none.
+     *
+     * @returns true if the queue should be flushed now.
+     */
+    public boolean isFlushDue(long queued, long oldestEnqueuedAt, long nextChance) {
+        return queued >= batchSize || nextChance <= 0 || nextChance - oldestEnqueuedAt >= flushIntervalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "batch " + batchSize + ", flush " + flushIntervalMillis + "ms, gzip level " + compressionLevel;
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.sensable.client.upload;
+
+/**
+ * picks the `UploadPlan` for the current `DeviceConditions`. On unmetered networks
+ * samples are flushed quickly in moderate batches; on metered networks they are held
+ * back into larger, maximally compressed batches so the radio wakes up less often and
+ * fewer bytes are billed, and a weak signal stretches the interval further since every
+ * transmission then costs more energy. Being plugged in halves the wait.
+ */
+public class UploadPolicy {
+
+    private static final long MINUTE_MILLIS = 60 * 1000;
+
+    static final int UNMETERED_BATCH_SIZE = 100;
+    static final int METERED_BATCH_SIZE = 200;
+    static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * computes the upload plan for the given conditions.
+     *
+     * @param conditions current state of the device.
+     *
+     * @returns the batch size, flush interval and compression level to use.
+     */
+    public UploadPlan plan(DeviceConditions conditions) {
+        if (!conditions.isConnected()) {
+            // Nothing can be sent, collect as much as possible for the next connection
+            return new UploadPlan(MAX_BATCH_SIZE, 60 * MINUTE_MILLIS, 9);
+        }
+
+        int batchSize;
+        long flushInterval;
+        int compressionLevel;
+        if (!conditions.isMetered()) {
+            batchSize = UNMETERED_BATCH_SIZE;
+            flushInterval = 5 * MINUTE_MILLIS;
+            compressionLevel = 6;
+        } else if (conditions.getSignalLevel() <= 1) {
+            batchSize = MAX_BATCH_SIZE;
+            flushInterval = 30 * MINUTE_MILLIS;
+            compressionLevel = 9;
+        } else {
+            batchSize = METERED_BATCH_SIZE;
+            flushInterval = 15 * MINUTE_MILLIS;
+            compressionLevel = 9;
+        }
+
+        if (conditions.isCharging()) {
+            flushInterval /= 2;
+        }
+        return new UploadPlan(batchSize, flushInterval, compressionLevel);
+    }
+
+}
@@ -0,0 +1,155 @@
+package io.sensable.client.upload;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import io.sensable.client.network.GzipRequestClient;
+import io.sensable.client.network.SensableClient;
+import io.sensable.client.sqlite.SensableDatabaseHelper;
+import io.sensable.client.sqlite.UploadStatsTable;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * keeps the telemetry of the upload pipeline: how long samples take from capture to the
+ * queue and from the queue to their acknowledgement, how large batches and request
+ * bodies are, and how deep and old the queue gets. Every metric is a `Histogram` held in
+ * memory. Recording only touches memory; `flush` writes the changed histograms to the
+ * `upload_stats` table in one transaction once per tick or drain, so the numbers survive
+ * the short-lived services that produce them.
+ */
+public class UploadStats {
+
+    public static final String CAPTURE_TO_ENQUEUE_MILLIS = "capture_to_enqueue_ms";
+    public static final String ENQUEUE_TO_ACK_MILLIS = "enqueue_to_ack_ms";
+    public static final String BATCH_SIZE = "batch_size";
+    public static final String BYTES_SENT = "bytes_sent";
+    public static final String QUEUE_DEPTH = "queue_depth";
+    public static final String QUEUE_AGE_MILLIS = "queue_age_ms";
+
+    private static final String[] METRICS = {
+            CAPTURE_TO_ENQUEUE_MILLIS, ENQUEUE_TO_ACK_MILLIS, BATCH_SIZE, BYTES_SENT, QUEUE_DEPTH, QUEUE_AGE_MILLIS
+    };
+
+    private static UploadStats sInstance = null;
+
+    private final SensableDatabaseHelper dbHelper;
+    private final Map<String, Histogram> histograms = new LinkedHashMap<String, Histogram>();
+    // Metrics recorded since the last flush
+    private final Set<String> dirty = new LinkedHashSet<String>();
+
+    /**
+     * returns the stats of the app, loading the stored histograms on first use.
+     *
+     * @param context context used to reach the local store.
+     *
+     * @returns the single `UploadStats` instance.
+     */
+    public static synchronized UploadStats getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new UploadStats(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private UploadStats(Context context) {
+        dbHelper = SensableDatabaseHelper.getHelper(context);
+        for (String metric : METRICS) {
+            histograms.put(metric, new Histogram());
+        }
+        load();
+        SensableClient.getInstance().getGzipClient().setUploadListener(new GzipRequestClient.UploadListener() {
+            @Override
+            public void onUploadSent(long bytes) {
+                record(BYTES_SENT, bytes);
+            }
+        });
+    }
+
+    /**
+     * records a value of a metric. The value is kept in memory until the next `flush`.
+     *
+     * @param metric one of the metric names of this class.
+     *
+     * @param value value to record.
+     */
+    public synchronized void record(String metric, long value) {
+        histograms.get(metric).record(value);
+        dirty.add(metric);
+    }
+
+    /**
+     * writes the histograms changed since the last flush to the local store, in a single
+     * transaction.
+     */
+    public synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase database = dbHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (String metric : dirty) {
+                Histogram histogram = histograms.get(metric);
+                ContentValues values = new ContentValues();
+                values.put(UploadStatsTable.COLUMN_METRIC, metric);
+                values.put(UploadStatsTable.COLUMN_COUNT, histogram.getCount());
+                values.put(UploadStatsTable.COLUMN_SUM, histogram.getSum());
+                values.put(UploadStatsTable.COLUMN_MAX, histogram.getMax());
+                values.put(UploadStatsTable.COLUMN_BUCKETS, histogram.encodeBuckets());
+                database.insertWithOnConflict(UploadStatsTable.NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            database.setTransactionSuccessful();
+            dirty.clear();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * returns a snapshot of all metrics.
+     *
+     * @returns copies of the histograms keyed by metric name, in a fixed order.
+     */
+    public synchronized Map<String, Histogram> getHistograms() {
+        Map<String, Histogram> snapshot = new LinkedHashMap<String, Histogram>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            snapshot.put(entry.getKey(), new Histogram(entry.getValue()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * forgets all recorded values.
+     */
+    public synchronized void clear() {
+        for (String metric : METRICS) {
+            histograms.put(metric, new Histogram());
+        }
+        dirty.clear();
+        dbHelper.getWritableDatabase().delete(UploadStatsTable.NAME, null, null);
+    }
+
+    private void load() {
+        Cursor cursor = dbHelper.getReadableDatabase().query(UploadStatsTable.NAME, null, null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                String metric = cursor.getString(cursor.getColumnIndex(UploadStatsTable.COLUMN_METRIC));
+                if (histograms.containsKey(metric)) {
+                    histograms.put(metric, Histogram.decode(
+                            cursor.getLong(cursor.getColumnIndex(UploadStatsTable.COLUMN_COUNT)),
+                            cursor.getLong(cursor.getColumnIndex(UploadStatsTable.COLUMN_SUM)),
+                            cursor.getLong(cursor.getColumnIndex(UploadStatsTable.COLUMN_MAX)),
+                            cursor.getString(cursor.getColumnIndex(UploadStatsTable.COLUMN_BUCKETS))));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+}
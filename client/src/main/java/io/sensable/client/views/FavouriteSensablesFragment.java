@@ -13,7 +13,10 @@ import android.view.ViewGroup;
 import android.widget.*;
 import io.sensable.client.R;
 import io.sensable.client.SensableActivity;
+import io.sensable.client.network.FavouritesRefresher;
+import io.sensable.client.network.LiveUpdateChannel;
 import io.sensable.client.scheduler.ScheduleHelper;
+import io.sensable.client.settings.Config;
 import io.sensable.client.sqlite.SavedSensablesTable;
 import io.sensable.client.sqlite.SensableContentProvider;
 import io.sensable.model.Sensable;
@@ -33,6 +36,9 @@ public class FavouriteSensablesFragment extends Fragment implements LoaderManage
 
     SensableListAdapter mAdapter;
 
+    private LiveUpdateChannel mLiveUpdateChannel;
+    private boolean mStarted = false;
+
     /**
      * inflates a fragment's layout from a resource file and returns the resulting view.
      * 
@@ -82,6 +88,31 @@ public class FavouriteSensablesFragment extends Fragment implements LoaderManage
     public void onStart() {
         super.onStart();
         initialiseList();
+        if (mLiveUpdateChannel == null) {
+            mLiveUpdateChannel = new LiveUpdateChannel(getActivity());
+        }
+        mStarted = true;
+        // Catch up on everything missed while away, or join the refresh of a cold start,
+        // then the channel keeps it fresh from there
+        FavouritesRefresher.getInstance(getActivity()).refresh(Config.FAVOURITES_REFRESH_DEADLINE_MILLIS,
+                new FavouritesRefresher.Listener() {
+                    @Override
+                    public void onRefreshed(int refreshed, int total) {
+                        if (mStarted) {
+                            mLiveUpdateChannel.start();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * stops pushing live updates into the favourites once they are no longer shown.
+     */
+    @Override
+    public void onStop() {
+        mStarted = false;
+        mLiveUpdateChannel.stop();
+        super.onStop();
     }
 
     /**
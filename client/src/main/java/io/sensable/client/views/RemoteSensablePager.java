@@ -0,0 +1,163 @@
+package io.sensable.client.views;
+
+import android.util.Log;
+import io.sensable.SensableService;
+import io.sensable.model.Sensable;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * is a paging data source for the catalogue of remote sensables. Pages are requested
+ * from sensable.io as the list is scrolled and only a bounded window of consecutive
+ * pages is kept in memory; pages that scroll far out of view are dropped and fetched
+ * again if the user scrolls back to them.
+ */
+public class RemoteSensablePager {
+
+    private static final String TAG = RemoteSensablePager.class.getSimpleName();
+
+    public static final int PAGE_SIZE = 50;
+    public static final int MAX_PAGES = 4;
+
+    /**
+     * is notified on the main thread whenever the window of loaded sensables changes.
+     */
+    public interface Listener {
+        /**
+         * called after a page was added to or dropped from the window.
+         *
+         * @param shift number of items by which the previously visible items moved down
+         * (positive) or up (negative) in the list.
+         */
+        void onWindowChanged(int shift);
+    }
+
+    private final SensableService service;
+    private final Listener listener;
+    private final ArrayList<Sensable> items;
+    private final LinkedList<List<Sensable>> pages = new LinkedList<List<Sensable>>();
+
+    private int firstPage = 0;
+    private boolean loading = false;
+    private boolean endReached = false;
+
+    /**
+     * @param service service used to fetch the pages.
+     *
+     * @param items list backing the adapter, rebuilt from the window on every change.
+     *
+     * @param listener listener told about changes to the window.
+     */
+    public RemoteSensablePager(SensableService service, ArrayList<Sensable> items, Listener listener) {
+        this.service = service;
+        this.items = items;
+        this.listener = listener;
+    }
+
+    /**
+     * drops the current window and loads the first page of the catalogue.
+     */
+    public void reset() {
+        pages.clear();
+        items.clear();
+        firstPage = 0;
+        endReached = false;
+        loading = false;
+        loadPage(0);
+    }
+
+    /**
+     * loads the page following the window unless a request is already running or the
+     * end of the catalogue has been reached.
+     */
+    public void loadNext() {
+        if (!loading && !endReached) {
+            loadPage(firstPage + pages.size());
+        }
+    }
+
+    /**
+     * loads the page preceding the window, if an earlier page was dropped from it.
+     */
+    public void loadPrevious() {
+        if (!loading && firstPage > 0) {
+            loadPage(firstPage - 1);
+        }
+    }
+
+    /**
+     * returns whether pages before the window have been dropped.
+     *
+     * @returns true when scrolling up requires loading an earlier page.
+     */
+    public boolean hasPrevious() {
+        return firstPage > 0;
+    }
+
+    private void loadPage(final int page) {
+        loading = true;
+        service.listSensables(page, PAGE_SIZE, new Callback<List<Sensable>>() {
+            @Override
+            public void success(List<Sensable> sensables, Response response) {
+                Log.d(TAG, "Loaded page " + page + " with " + sensables.size() + " sensables");
+                loading = false;
+                addPage(page, sensables);
+            }
+
+            @Override
+            public void failure(RetrofitError retrofitError) {
+                Log.e(TAG, "Callback failure " + retrofitError.toString());
+                loading = false;
+            }
+        });
+    }
+
+    /**
+     * adds a loaded page to the window and trims the window from the opposite end so it
+     * never holds more than `MAX_PAGES` pages.
+     *
+     * @param page index of the loaded page.
+     *
+     * @param sensables sensables on the loaded page.
+     */
+    private void addPage(int page, List<Sensable> sensables) {
+        int shift = 0;
+        if (sensables.size() > PAGE_SIZE) {
+            // The server ignored the paging parameters and returned the whole catalogue
+            pages.clear();
+            firstPage = 0;
+            pages.add(sensables);
+            endReached = true;
+        } else if (page == firstPage + pages.size()) {
+            pages.addLast(sensables);
+            endReached = sensables.size() < PAGE_SIZE;
+            if (pages.size() > MAX_PAGES) {
+                shift -= pages.removeFirst().size();
+                firstPage++;
+            }
+        } else if (page == firstPage - 1) {
+            pages.addFirst(sensables);
+            firstPage--;
+            shift += sensables.size();
+            if (pages.size() > MAX_PAGES) {
+                pages.removeLast();
+                endReached = false;
+            }
+        } else {
+            // The window moved on while this page was loading
+            return;
+        }
+
+        items.clear();
+        for (List<Sensable> loaded : pages) {
+            items.addAll(loaded);
+        }
+        listener.onWindowChanged(shift);
+    }
+
+}
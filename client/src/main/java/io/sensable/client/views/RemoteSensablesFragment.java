@@ -7,27 +7,25 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import io.sensable.SensableService;
 import io.sensable.client.R;
 import io.sensable.client.SensableActivity;
+import io.sensable.client.network.RequestDispatcher;
+import io.sensable.client.network.RequestScope;
 import io.sensable.model.Sensable;
-import retrofit.Callback;
-import retrofit.RestAdapter;
-import retrofit.RetrofitError;
-import retrofit.client.Response;
 
 import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Created by simonmadine on 20/07/2014.
  */
 /**
  * is a Java file that extends Fragment and provides a list of sensibles retrieved
- * from an API endpoint. The class has methods for initializing the list and adding
+ * page by page from an API endpoint. The class has methods for initializing the list and adding
  * an onclick listener to the listview.
  */
 public class RemoteSensablesFragment extends Fragment {
@@ -35,8 +33,13 @@ public class RemoteSensablesFragment extends Fragment {
     private static final String TAG = RemoteSensablesFragment.class.getSimpleName();
     public final static String EXTRA_SENSABLE = "io.sensable.sensable";
 
+    // Load the neighbouring page once the user is this many items from the end of the window
+    private static final int PREFETCH_DISTANCE = 10;
+
     private ArrayList<Sensable> mSensables;
     private ArrayAdapter<Sensable> mListArrayAdapter;
+    private RemoteSensablePager mPager;
+    private RequestScope mRequestScope;
 
 
     /**
@@ -89,63 +92,90 @@ public class RemoteSensablesFragment extends Fragment {
     }
 
     /**
-     * initializes a `RestAdapter` to make API calls to retrieve a list of sensors, and
-     * then uses the `create` method to create an instance of the `SensableService` class.
-     * The service is then called with a callback to receive the list of sensors in response.
+     * sets up the list and, if this tab is the one shown, starts loading its first page.
      */
     @Override
     public void onStart() {
         super.onStart();
         initialiseList();
-        RestAdapter restAdapter = new RestAdapter.Builder()
-                .setLogLevel(RestAdapter.LogLevel.FULL)
-                .setEndpoint("http://sensable.io")
-                .build();
+        if (getUserVisibleHint()) {
+            startPaging();
+        }
+    }
 
-        SensableService service = restAdapter.create(SensableService.class);
+    /**
+     * cancels the page requests of this fragment when the user switches to another tab,
+     * which does not stop a fragment of the `ViewPager`, and reloads once it is shown again.
+     *
+     * @param isVisibleToUser whether this tab is now the one shown.
+     */
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        if (!isVisibleToUser) {
+            stopPaging();
+        } else if (isResumed() && mPager == null) {
+            startPaging();
+        }
+    }
 
-        service.listSensables(new Callback<List<Sensable>>() {
-            /**
-             * is called when a callback operation completes successfully. It adds the list of
-             * sensibles to a internal list and notifies the ListArrayAdapter to update the UI.
-             * 
-             * @param sensables list of sensors that have successfully received data, which is
-             * added to the existing list of sensors stored in the variable `mSensables`.
-             * 
-             * 	- `sensables`: A list of `Sensable` objects, which contain attributes such as
-             * `id`, `name`, `description`, and `value`.
-             * 
-             * @param response response from the API call, which contains the list of sensibles
-             * that will be processed and added to the adapter.
-             * 
-             * 	- `sensables`: A list of `Sensable` objects representing the successful callback
-             * data.
-             * 	- `size`: The number of elements in the `sensables` list.
-             */
-            @Override
-            public void success(List<Sensable> sensables, Response response) {
-                Log.d(TAG, "Callback Success " + sensables.size());
-                mSensables.clear();
-                mSensables.addAll(sensables);
-                mListArrayAdapter.notifyDataSetChanged();
-            }
+    /**
+     * cancels the page requests of this fragment, so pages that arrive afterwards are not
+     * decoded.
+     */
+    @Override
+    public void onStop() {
+        stopPaging();
+        super.onStop();
+    }
 
+    /**
+     * hands the interactive `SensableService` of a new request scope to a
+     * `RemoteSensablePager` which loads the first page. Further pages are loaded as the
+     * list is scrolled.
+     */
+    private void startPaging() {
+        mRequestScope = new RequestScope(RequestDispatcher.Priority.INTERACTIVE);
+        SensableService service = mRequestScope.getService();
+
+        mPager = new RemoteSensablePager(service, mSensables, new RemoteSensablePager.Listener() {
             /**
-             * is called when a callback fails, logging the error to the console with a tag and
-             * including the error details in the log message.
-             * 
-             * @param retrofitError error that occurred during the callback, and its toString()
-             * method is called to log the error message.
-             * 
-             * 	- `toString()`: returns a human-readable representation of the error object in
-             * string format.
+             * refreshes the list after the window of loaded pages changed, keeping the
+             * items that were on screen in place.
+             *
+             * @param shift number of items the previously visible items moved by.
              */
             @Override
-            public void failure(RetrofitError retrofitError) {
-                Log.e(TAG, "Callback failure " + retrofitError.toString());
+            public void onWindowChanged(int shift) {
+                if (getView() == null) {
+                    return;
+                }
+                Log.d(TAG, "Window holds " + mSensables.size() + " sensables");
+                ListView sensableList = (ListView) getView().findViewById(R.id.sensable_list);
+                int first = sensableList.getFirstVisiblePosition();
+                View firstView = sensableList.getChildAt(0);
+                int top = firstView == null ? 0 : firstView.getTop();
+                mListArrayAdapter.notifyDataSetChanged();
+                if (shift != 0) {
+                    sensableList.setSelectionFromTop(Math.max(0, first + shift), top);
+                }
             }
         });
+        mPager.reset();
+        mListArrayAdapter.notifyDataSetChanged();
+    }
 
+    /**
+     * cancels the requests of the current scope. A pager whose requests were cancelled
+     * may be left waiting for a page, so it is dropped and `startPaging` starts afresh.
+     */
+    private void stopPaging() {
+        if (mRequestScope != null) {
+            Log.d(TAG, "Cancelling page requests");
+            mRequestScope.cancel();
+            mRequestScope = null;
+        }
+        mPager = null;
     }
 
     /**
@@ -160,6 +190,28 @@ public class RemoteSensablesFragment extends Fragment {
         mListArrayAdapter = new ArrayAdapter<Sensable>(getActivity(), android.R.layout.simple_list_item_1, mSensables);
         sensableList.setAdapter(mListArrayAdapter);
 
+        sensableList.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            /**
+             * asks the pager for the neighbouring page once the visible items come within
+             * `PREFETCH_DISTANCE` of either end of the loaded window.
+             */
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (mPager == null || totalItemCount == 0) {
+                    return;
+                }
+                if (firstVisibleItem + visibleItemCount >= totalItemCount - PREFETCH_DISTANCE) {
+                    mPager.loadNext();
+                } else if (firstVisibleItem <= PREFETCH_DISTANCE && mPager.hasPrevious()) {
+                    mPager.loadPrevious();
+                }
+            }
+        });
+
         //add onclick to listview
         sensableList.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             /**
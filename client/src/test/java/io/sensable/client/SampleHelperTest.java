@@ -0,0 +1,73 @@
+package io.sensable.client;
+
+import io.sensable.model.Sample;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SampleHelperTest {
+
+    @Test
+    public void mergeInterleavesByTimestamp() {
+        Sample[] merged = SampleHelper.mergeSamples(samples(1, 3, 5), new Sample[]{sample(4, 0), sample(2, 0)});
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), timestampsOf(merged));
+    }
+
+    @Test
+    public void incomingSampleReplacesCachedSampleWithTheSameTimestamp() {
+        Sample[] merged = SampleHelper.mergeSamples(samples(1, 2), new Sample[]{sample(2, 42)});
+
+        assertEquals(2, merged.length);
+        assertEquals(42, merged[1].getValue(), 0);
+    }
+
+    @Test
+    public void mergeWithoutIncomingKeepsTheCache() {
+        Sample[] merged = SampleHelper.mergeSamples(samples(1, 2), null);
+
+        assertEquals(Arrays.asList(1L, 2L), timestampsOf(merged));
+    }
+
+    @Test
+    public void samplesAfterDropsTheCachedRange() {
+        List<Sample> newer = SampleHelper.samplesAfter(new Sample[]{sample(1, 0), sample(2, 0), sample(3, 0)}, 2);
+
+        assertEquals(1, newer.size());
+        assertEquals(3, newer.get(0).getTimestamp());
+    }
+
+    @Test
+    public void latestTimestampOfAnEmptyCacheIsZero() {
+        assertEquals(0, SampleHelper.latestTimestamp(new ArrayList<Sample>()));
+        assertEquals(5, SampleHelper.latestTimestamp(samples(1, 5)));
+    }
+
+    private static List<Sample> samples(long... timestamps) {
+        List<Sample> samples = new ArrayList<Sample>();
+        for (long timestamp : timestamps) {
+            samples.add(sample(timestamp, 0));
+        }
+        return samples;
+    }
+
+    private static Sample sample(long timestamp, double value) {
+        Sample sample = new Sample();
+        sample.setTimestamp(timestamp);
+        sample.setValue(value);
+        return sample;
+    }
+
+    private static List<Long> timestampsOf(Sample[] samples) {
+        List<Long> timestamps = new ArrayList<Long>();
+        for (Sample sample : samples) {
+            timestamps.add(sample.getTimestamp());
+        }
+        return timestamps;
+    }
+
+}
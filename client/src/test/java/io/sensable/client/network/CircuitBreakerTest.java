@@ -0,0 +1,42 @@
+package io.sensable.client.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterFiveConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("/test");
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("/test");
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        breaker.onSuccess();
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+    }
+
+}
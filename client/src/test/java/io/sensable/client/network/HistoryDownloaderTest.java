@@ -0,0 +1,143 @@
+package io.sensable.client.network;
+
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import io.sensable.SensableService;
+import io.sensable.client.settings.Config;
+import io.sensable.model.Sensable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit.RestAdapter;
+import retrofit.RetrofitError;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class HistoryDownloaderTest {
+
+    private static final int PROBE_LIMIT = 3;
+
+    private MockWebServer server;
+    private HistoryDownloader downloader;
+    private Sensable result;
+
+    private final HistoryDownloader.Listener listener = new HistoryDownloader.Listener() {
+        @Override
+        public void onComplete(Sensable sensable) {
+            result = sensable;
+        }
+
+        @Override
+        public void onFailure(RetrofitError retrofitError) {
+            throw retrofitError;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.play();
+        // Requests and callbacks run on the calling thread
+        Executor sameThread = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        };
+        SensableService service = new RestAdapter.Builder()
+                .setEndpoint(server.getUrl("/").toString())
+                .setExecutors(sameThread, sameThread)
+                .build()
+                .create(SensableService.class);
+        downloader = new HistoryDownloader(service, 2, PROBE_LIMIT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void shortHistoryIsFetchedWithASingleRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(samples("s", 1, 2)));
+
+        downloader.download("s", 0, 10 * Config.HISTORY_CHUNK_MILLIS, listener);
+
+        assertEquals(1, server.getRequestCount());
+        assertTrue(server.takeRequest().getPath().contains("limit=" + PROBE_LIMIT));
+        assertNotNull(result);
+        assertEquals(2, result.getSamples().length);
+    }
+
+    @Test
+    public void fullProbeSplitsTheRangeIntoChunks() throws Exception {
+        server.enqueue(new MockResponse().setBody(samples("s", 1, 2, 3)));
+        server.enqueue(new MockResponse().setBody(samples("s", 1, 2, 3)));
+        server.enqueue(new MockResponse().setBody(samples("s", Config.HISTORY_CHUNK_MILLIS + 1, Config.HISTORY_CHUNK_MILLIS + 2)));
+
+        downloader.download("s", 1, 1 + 2 * Config.HISTORY_CHUNK_MILLIS, listener);
+
+        assertEquals(3, server.getRequestCount());
+        server.takeRequest();
+        assertTrue(server.takeRequest().getPath().contains("from=1&to=" + (1 + Config.HISTORY_CHUNK_MILLIS)));
+        assertNotNull(result);
+        assertEquals(5, result.getSamples().length);
+    }
+
+    @Test
+    public void wholeHistoryIsSplitFromTheOldestProbedSample() throws Exception {
+        long oldest = 100 * Config.HISTORY_CHUNK_MILLIS;
+        server.enqueue(new MockResponse().setBody(samples("s", oldest, oldest + 1, oldest + 2)));
+        server.enqueue(new MockResponse().setBody(samples("s", oldest, oldest + 1, oldest + 2)));
+        server.enqueue(new MockResponse().setBody(samples("s", oldest + Config.HISTORY_CHUNK_MILLIS)));
+
+        downloader.download("s", 0, oldest + 2 * Config.HISTORY_CHUNK_MILLIS, listener);
+
+        assertEquals(3, server.getRequestCount());
+        server.takeRequest();
+        assertTrue(server.takeRequest().getPath().contains("from=" + oldest + "&to=" + (oldest + Config.HISTORY_CHUNK_MILLIS)));
+        assertNotNull(result);
+        assertEquals(4, result.getSamples().length);
+    }
+
+    @Test
+    public void serverIgnoringTheRangeStopsTheDownload() throws Exception {
+        long late = 5 * Config.HISTORY_CHUNK_MILLIS;
+        server.enqueue(new MockResponse().setBody(samples("s", 1, 2, 3)));
+        // The first chunk brings the whole history, far beyond its range
+        server.enqueue(new MockResponse().setBody(samples("s", 1, 2, 3, late)));
+
+        downloader.download("s", 1, 1 + 10 * Config.HISTORY_CHUNK_MILLIS, listener);
+
+        assertEquals(2, server.getRequestCount());
+        assertNotNull(result);
+        assertEquals(4, result.getSamples().length);
+    }
+
+    @Test
+    public void probeOutsideTheRangeIsTakenAsTheHistory() throws Exception {
+        server.enqueue(new MockResponse().setBody(samples("s", 1, 2, 3)));
+
+        downloader.download("s", 10, 10 + 2 * Config.HISTORY_CHUNK_MILLIS, listener);
+
+        assertEquals(1, server.getRequestCount());
+        assertNotNull(result);
+        assertEquals(3, result.getSamples().length);
+    }
+
+    private static String samples(String sensorId, long... timestamps) {
+        StringBuilder json = new StringBuilder("{\"sensorid\":\"" + sensorId + "\",\"samples\":[");
+        for (int i = 0; i < timestamps.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"timestamp\":").append(timestamps[i]).append(",\"value\":").append(i).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+}
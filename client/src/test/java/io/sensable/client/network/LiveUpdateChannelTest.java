@@ -0,0 +1,216 @@
+package io.sensable.client.network;
+
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import io.sensable.SensableService;
+import io.sensable.client.BuildConfig;
+import io.sensable.client.sqlite.SampleStore;
+import io.sensable.model.Sample;
+import io.sensable.model.Sensable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import retrofit.RestAdapter;
+
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 19)
+public class LiveUpdateChannelTest {
+
+    private MockWebServer server;
+    private FakeSampleStore sampleStore;
+    private LiveUpdateChannel channel;
+    private SensableService service;
+
+    /**
+     * is a sample store holding the newest cached timestamp per sensor ID in memory.
+     */
+    private static class FakeSampleStore extends SampleStore {
+        final Map<String, Long> latest = new ConcurrentHashMap<String, Long>();
+        final Map<String, Integer> appended = new ConcurrentHashMap<String, Integer>();
+
+        FakeSampleStore() {
+            super(RuntimeEnvironment.application);
+        }
+
+        @Override
+        public long latestTimestamp(String sensorId) {
+            Long timestamp = latest.get(sensorId);
+            return timestamp == null ? 0 : timestamp;
+        }
+
+        @Override
+        public int appendSamples(String sensorId, Sample[] samples) {
+            appended.put(sensorId, samples.length);
+            return samples.length;
+        }
+    }
+
+    /**
+     * is a channel watching a fixed list of favourites instead of the saved ones.
+     */
+    private static class FixedFavouritesChannel extends LiveUpdateChannel {
+        volatile List<Sensable> favourites = Collections.emptyList();
+
+        FixedFavouritesChannel(SensableService service, SampleStore sampleStore) {
+            super(RuntimeEnvironment.application, service, sampleStore);
+        }
+
+        @Override
+        List<Sensable> loadFavourites() {
+            return favourites;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.play();
+        service = new RestAdapter.Builder()
+                .setEndpoint(server.getUrl("/").toString())
+                .build()
+                .create(SensableService.class);
+        sampleStore = new FakeSampleStore();
+        channel = new LiveUpdateChannel(RuntimeEnvironment.application, service, sampleStore);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void pollSendsOneCursorPerFavourite() throws Exception {
+        sampleStore.latest.put("busy", 5000L);
+        sampleStore.latest.put("quiet", 100L);
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        service.getUpdates(channel.encodeCursors(favourites("busy", "quiet")));
+
+        assertEquals("busy:5000,quiet:100", cursorsOf(server.takeRequest()));
+    }
+
+    @Test
+    public void cursorOnlyAdvancesForTheUpdatedFavourite() throws Exception {
+        sampleStore.latest.put("busy", 5000L);
+        sampleStore.latest.put("quiet", 100L);
+        server.enqueue(new MockResponse().setBody(
+                "[{\"sensorid\":\"busy\",\"samples\":[{\"timestamp\":6000,\"value\":1},{\"timestamp\":7000,\"value\":2}]}]"));
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        List<Sensable> favourites = favourites("busy", "quiet");
+        channel.applyUpdates(service.getUpdates(channel.encodeCursors(favourites)));
+        service.getUpdates(channel.encodeCursors(favourites));
+
+        server.takeRequest();
+        assertEquals("busy:7000,quiet:100", cursorsOf(server.takeRequest()));
+        assertEquals(Integer.valueOf(2), sampleStore.appended.get("busy"));
+    }
+
+    @Test
+    public void favouriteWithoutCachedSamplesStartsNow() throws Exception {
+        long before = System.currentTimeMillis();
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        service.getUpdates(channel.encodeCursors(favourites("new")));
+
+        String cursor = cursorsOf(server.takeRequest());
+        assertTrue(cursor.startsWith("new:"));
+        assertTrue(Long.parseLong(cursor.substring("new:".length())) >= before);
+    }
+
+    @Test
+    public void pollAppliesTheUpdatesItReceives() throws Exception {
+        FixedFavouritesChannel polling = new FixedFavouritesChannel(service, sampleStore);
+        polling.favourites = favourites("busy");
+        sampleStore.latest.put("busy", 5000L);
+        server.enqueue(new MockResponse().setBody(
+                "[{\"sensorid\":\"busy\",\"samples\":[{\"timestamp\":6000,\"value\":1}]}]"));
+
+        polling.start();
+        try {
+            assertTrue(await(new Condition() {
+                @Override
+                public boolean holds() {
+                    return sampleStore.appended.containsKey("busy");
+                }
+            }));
+            assertEquals("busy:5000", cursorsOf(server.takeRequest()));
+        } finally {
+            polling.stop();
+        }
+    }
+
+    @Test
+    public void channelWithoutFavouritesCanBeStartedAgain() throws Exception {
+        final FixedFavouritesChannel polling = new FixedFavouritesChannel(service, sampleStore);
+
+        polling.start();
+        assertTrue(await(new Condition() {
+            @Override
+            public boolean holds() {
+                return !polling.isRunning();
+            }
+        }));
+
+        polling.favourites = favourites("quiet");
+        sampleStore.latest.put("quiet", 100L);
+        server.enqueue(new MockResponse().setBody("[]"));
+        polling.start();
+        try {
+            assertTrue(polling.isRunning());
+            assertEquals("quiet:100", cursorsOf(server.takeRequest()));
+        } finally {
+            polling.stop();
+        }
+        assertFalse(polling.isRunning());
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    /**
+     * waits up to five seconds for the poll thread to reach a condition.
+     */
+    private static boolean await(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.holds()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static List<Sensable> favourites(String... sensorIds) {
+        Sensable[] favourites = new Sensable[sensorIds.length];
+        for (int i = 0; i < sensorIds.length; i++) {
+            favourites[i] = new Sensable();
+            favourites[i].setSensorid(sensorIds[i]);
+        }
+        return Arrays.asList(favourites);
+    }
+
+    private static String cursorsOf(RecordedRequest request) throws Exception {
+        String path = request.getPath();
+        return URLDecoder.decode(path.substring(path.indexOf("cursors=") + "cursors=".length()), "UTF-8");
+    }
+
+}
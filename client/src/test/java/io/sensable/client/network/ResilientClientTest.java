@@ -0,0 +1,199 @@
+package io.sensable.client.network;
+
+import io.sensable.client.BuildConfig;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 19)
+public class ResilientClientTest {
+
+    private static final int READ_TIMEOUT = -1;
+    private static final int CRASH = -2;
+
+    /**
+     * is a client answering with scripted status codes, 0 for a network error,
+     * `READ_TIMEOUT` for a read timeout and `CRASH` for a runtime error, and repeating the
+     * last one once the script runs out.
+     */
+    private static class ScriptedClient implements Client {
+        final LinkedList<Integer> statuses = new LinkedList<Integer>();
+        int calls = 0;
+
+        ScriptedClient(Integer... statuses) {
+            Collections.addAll(this.statuses, statuses);
+        }
+
+        @Override
+        public Response execute(Request request) throws IOException {
+            calls++;
+            int status = statuses.size() > 1 ? statuses.removeFirst() : statuses.getFirst();
+            if (status == 0) {
+                throw new IOException("Network down");
+            }
+            if (status == READ_TIMEOUT) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            if (status == CRASH) {
+                throw new IllegalStateException("Client crashed");
+            }
+            return new Response(request.getUrl(), status, "", Collections.<Header>emptyList(), null);
+        }
+    }
+
+    @Test
+    public void serverErrorsAreRetriedUntilSuccess() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(503, 503, 200);
+
+        Response response = new ResilientClient(scripted).execute(get("/retry-success"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(3, scripted.calls);
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(404);
+
+        Response response = new ResilientClient(scripted).execute(get("/retry-client-error"));
+
+        assertEquals(404, response.getStatus());
+        assertEquals(1, scripted.calls);
+    }
+
+    @Test
+    public void postWithoutIdempotencyKeyIsNotRetried() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(503, 200);
+
+        Response response = new ResilientClient(scripted).execute(
+                post("/retry-post", Collections.<Header>emptyList()));
+
+        assertEquals(503, response.getStatus());
+        assertEquals(1, scripted.calls);
+    }
+
+    @Test
+    public void postWithIdempotencyKeyIsRetried() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(503, 200);
+
+        Response response = new ResilientClient(scripted).execute(
+                post("/retry-keyed-post", Collections.singletonList(new Header("Idempotency-Key", "batch-1"))));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(2, scripted.calls);
+    }
+
+    @Test
+    public void networkErrorsGiveUpAfterFourAttempts() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(0);
+
+        try {
+            new ResilientClient(scripted).execute(get("/retry-network-error"));
+            fail("Expected the network error");
+        } catch (IOException e) {
+            assertEquals(4, scripted.calls);
+        }
+    }
+
+    @Test
+    public void openCircuitFailsFastWithoutCallingTheServer() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(0);
+        ResilientClient client = new ResilientClient(scripted);
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.execute(get("/retry-circuit"));
+            } catch (IOException e) {
+                // Opens the circuit after the fifth failure
+            }
+        }
+        int calls = scripted.calls;
+
+        try {
+            client.execute(get("/retry-circuit"));
+            fail("Expected the open circuit to fail the request");
+        } catch (IOException e) {
+            assertEquals(5, calls);
+            assertEquals(calls, scripted.calls);
+        }
+    }
+
+    @Test
+    public void retryBudgetRunsOut() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(0);
+        ResilientClient client = new ResilientClient(scripted);
+        int[] calls = new int[5];
+        for (int i = 0; i < calls.length; i++) {
+            int before = scripted.calls;
+            try {
+                // Separate endpoints, so no circuit opens
+                client.execute(get("/retry-budget-" + i));
+            } catch (IOException e) {
+                calls[i] = scripted.calls - before;
+            }
+        }
+
+        // Ten retries are budgeted, then every request gets a single attempt
+        assertEquals(4, calls[0]);
+        assertEquals(4, calls[2]);
+        assertEquals(2, calls[3]);
+        assertEquals(1, calls[4]);
+    }
+
+    @Test
+    public void runtimeErrorsStillCountAsFailures() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(CRASH);
+        ResilientClient client = new ResilientClient(scripted);
+        for (int i = 0; i < 5; i++) {
+            try {
+                client.execute(get("/retry-crash"));
+                fail("Expected the runtime error");
+            } catch (IllegalStateException e) {
+                // Not retried, but reported to the breaker
+            }
+        }
+
+        assertEquals(5, scripted.calls);
+        assertEquals(CircuitBreaker.State.OPEN, ResilientClient.getCircuitBreakers().get("/retry-crash").getState());
+    }
+
+    @Test
+    public void longPollTimeoutsAreNeitherRetriedNorFailures() throws Exception {
+        ScriptedClient scripted = new ScriptedClient(READ_TIMEOUT);
+        ResilientClient client = new ResilientClient(scripted);
+        for (int i = 0; i < 6; i++) {
+            try {
+                client.execute(get("/updates?cursors=sensor:0"));
+                fail("Expected the read timeout");
+            } catch (SocketTimeoutException e) {
+                // The channel polls again by itself
+            }
+        }
+
+        assertEquals(6, scripted.calls);
+        assertEquals(CircuitBreaker.State.CLOSED, ResilientClient.getCircuitBreakers().get("/updates").getState());
+    }
+
+    private static Request get(String path) {
+        return new Request("GET", "http://sensable.io" + path, Collections.<Header>emptyList(), null);
+    }
+
+    private static Request post(String path, List<Header> headers) {
+        return new Request("POST", "http://sensable.io" + path, headers, null);
+    }
+
+}
@@ -0,0 +1,42 @@
+package io.sensable.client.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    public void burstIsAvailableRightAway() {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.reserve());
+        }
+    }
+
+    @Test
+    public void emptyBucketReservesFutureTokensInOrder() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        bucket.reserve();
+
+        long first = bucket.reserve();
+        long second = bucket.reserve();
+
+        // One token per second, less whatever trickled in while the test ran
+        assertTrue(first > 900 && first <= 1000);
+        assertTrue(second > 1900 && second <= 2000);
+    }
+
+    @Test
+    public void tokensRefillAtTheRate() throws Exception {
+        TokenBucket bucket = new TokenBucket(100, 1);
+        bucket.reserve();
+
+        Thread.sleep(50);
+
+        assertEquals(0, bucket.reserve());
+    }
+
+}
@@ -0,0 +1,61 @@
+package io.sensable.client.scheduler;
+
+import io.sensable.model.ScheduledSensable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeadbandFilterTest {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    @Test
+    public void firstReadingIsAlwaysSent() {
+        assertTrue(DeadbandFilter.shouldSend(sensable(1, 0, HOUR_MILLIS), 20, 1000));
+    }
+
+    @Test
+    public void sensableWithoutDeadbandSendsEveryReading() {
+        ScheduledSensable scheduledSensable = sensable(0, 0, 0);
+        DeadbandFilter.markSent(scheduledSensable, 20, 1000);
+
+        assertTrue(DeadbandFilter.shouldSend(scheduledSensable, 20, 2000));
+    }
+
+    @Test
+    public void readingWithinAbsoluteDeadbandIsDropped() {
+        ScheduledSensable scheduledSensable = sensable(1, 0, 0);
+        DeadbandFilter.markSent(scheduledSensable, 20, 1000);
+
+        assertFalse(DeadbandFilter.shouldSend(scheduledSensable, 20.5, 2000));
+        assertTrue(DeadbandFilter.shouldSend(scheduledSensable, 21.5, 2000));
+    }
+
+    @Test
+    public void relativeDeadbandScalesWithTheLastValue() {
+        ScheduledSensable scheduledSensable = sensable(0, 0.01, 0);
+        DeadbandFilter.markSent(scheduledSensable, 1000, 1000);
+
+        assertFalse(DeadbandFilter.shouldSend(scheduledSensable, 1009, 2000));
+        assertTrue(DeadbandFilter.shouldSend(scheduledSensable, 1011, 2000));
+    }
+
+    @Test
+    public void heartbeatSendsAnUnchangedReading() {
+        ScheduledSensable scheduledSensable = sensable(1, 0, HOUR_MILLIS);
+        DeadbandFilter.markSent(scheduledSensable, 20, 1000);
+
+        assertFalse(DeadbandFilter.shouldSend(scheduledSensable, 20, 1000 + HOUR_MILLIS - 1));
+        assertTrue(DeadbandFilter.shouldSend(scheduledSensable, 20, 1000 + HOUR_MILLIS));
+    }
+
+    private static ScheduledSensable sensable(double deadbandAbsolute, double deadbandRelative, long heartbeatMillis) {
+        ScheduledSensable scheduledSensable = new ScheduledSensable();
+        scheduledSensable.setDeadbandAbsolute(deadbandAbsolute);
+        scheduledSensable.setDeadbandRelative(deadbandRelative);
+        scheduledSensable.setHeartbeatMillis(heartbeatMillis);
+        return scheduledSensable;
+    }
+
+}
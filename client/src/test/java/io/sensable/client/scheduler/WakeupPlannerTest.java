@@ -0,0 +1,115 @@
+package io.sensable.client.scheduler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class WakeupPlannerTest {
+
+    private static final long MINUTE_MILLIS = 60 * 1000;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+
+    @Test
+    public void takeDueReturnsEntriesWhoseWindowHasOpened() {
+        WakeupPlanner planner = new WakeupPlanner(Arrays.asList(
+                new WakeupPlanner.Entry(1, 100, 1000, 10),
+                new WakeupPlanner.Entry(2, 200, 1000, 50),
+                new WakeupPlanner.Entry(3, 300, 1000, 0)));
+
+        List<WakeupPlanner.Entry> due = planner.takeDue(150);
+
+        assertEquals(2, due.size());
+        assertEquals(1, planner.size());
+        assertEquals(300, planner.nextWakeup());
+    }
+
+    @Test
+    public void nextWakeupIsTheEarliestWindowEnd() {
+        WakeupPlanner planner = new WakeupPlanner(Arrays.asList(
+                new WakeupPlanner.Entry(1, 100, 1000, 10),
+                new WakeupPlanner.Entry(2, 90, 1000, 30)));
+
+        assertEquals(110, planner.nextWakeup());
+        assertEquals(0, new WakeupPlanner().nextWakeup());
+    }
+
+    @Test
+    public void nextWindowStartKeepsEverySensableOfTheWakeup() {
+        WakeupPlanner planner = new WakeupPlanner(Arrays.asList(
+                new WakeupPlanner.Entry(1, 100, 1000, 10),
+                new WakeupPlanner.Entry(2, 105, 1000, 20),
+                new WakeupPlanner.Entry(3, 200, 1000, 0)));
+
+        assertEquals(90, planner.nextWindowStart());
+        assertEquals(0, new WakeupPlanner().nextWindowStart());
+    }
+
+    @Test
+    public void entriesSharingAWindowAreAllKept() {
+        WakeupPlanner planner = new WakeupPlanner(Arrays.asList(
+                new WakeupPlanner.Entry(1, 100, 1000, 10),
+                new WakeupPlanner.Entry(2, 100, 1000, 10)));
+
+        assertEquals(2, planner.size());
+        assertEquals(2, planner.takeDue(90).size());
+        assertEquals(0, planner.size());
+        assertEquals(0, planner.nextWakeup());
+    }
+
+    @Test
+    public void takeDueLeavesLaterWindowsPlanned() {
+        WakeupPlanner planner = new WakeupPlanner(Arrays.asList(
+                new WakeupPlanner.Entry(1, 300, 1000, 10),
+                new WakeupPlanner.Entry(2, 100, 1000, 10),
+                new WakeupPlanner.Entry(3, 200, 1000, 10)));
+
+        List<WakeupPlanner.Entry> due = planner.takeDue(195);
+
+        assertEquals(2, due.size());
+        assertEquals(2, due.get(0).getId());
+        assertEquals(3, due.get(1).getId());
+        assertEquals(310, planner.nextWakeup());
+        assertEquals(290, planner.nextWindowStart());
+    }
+
+    @Test
+    public void nextFollowsTheScheduleNotTheWakeup() {
+        WakeupPlanner.Entry entry = new WakeupPlanner.Entry(1, 1000, 100, 10);
+
+        assertEquals(1100, entry.next(1008).getDueAt());
+    }
+
+    @Test
+    public void nextSkipsMissedSlots() {
+        WakeupPlanner.Entry entry = new WakeupPlanner.Entry(1, 1000, 100, 10);
+
+        assertEquals(1400, entry.next(1350).getDueAt());
+    }
+
+    @Test
+    public void lateWakeupsDoNotStretchTheInterval() {
+        // Waking at the end of every window must still sample four times an hour
+        List<WakeupPlanner.Entry> schedule = Collections.singletonList(
+                new WakeupPlanner.Entry(1, 10 * MINUTE_MILLIS, 15 * MINUTE_MILLIS, 5 * MINUTE_MILLIS));
+
+        assertEquals(4.0, WakeupPlanner.wakeupsPerHour(schedule, 10 * HOUR_MILLIS - 1), 0.01);
+    }
+
+    @Test
+    public void overlappingWindowsShareWakeups() {
+        List<WakeupPlanner.Entry> exact = Arrays.asList(
+                new WakeupPlanner.Entry(1, 0, 15 * MINUTE_MILLIS, 0),
+                new WakeupPlanner.Entry(2, 5 * MINUTE_MILLIS, 15 * MINUTE_MILLIS, 0));
+        List<WakeupPlanner.Entry> tolerant = Arrays.asList(
+                new WakeupPlanner.Entry(1, 0, 15 * MINUTE_MILLIS, 5 * MINUTE_MILLIS),
+                new WakeupPlanner.Entry(2, 5 * MINUTE_MILLIS, 15 * MINUTE_MILLIS, 5 * MINUTE_MILLIS));
+
+        assertEquals(8.0, WakeupPlanner.wakeupsPerHour(exact, HOUR_MILLIS - 1), 0.01);
+        assertEquals(4.0, WakeupPlanner.wakeupsPerHour(tolerant, HOUR_MILLIS - 1), 0.01);
+    }
+
+}
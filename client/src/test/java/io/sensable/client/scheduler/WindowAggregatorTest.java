@@ -0,0 +1,77 @@
+package io.sensable.client.scheduler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WindowAggregatorTest {
+
+    @Test
+    public void medianOfUnsortedReadings() {
+        assertEquals(3, aggregator(5, 1, 3, 4, 2).median(), 0);
+        assertEquals(2.5, aggregator(4, 1, 3, 2).median(), 0);
+    }
+
+    @Test
+    public void trimmedMeanDropsTheOutliers() {
+        // 10% of ten readings is one reading at each end
+        WindowAggregator window = aggregator(1000, 5, 5, 5, 5, 5, 5, 5, 5, -1000);
+
+        assertEquals(5, window.trimmedMean(), 1e-9);
+        assertEquals(5 * 8 / 10.0, window.mean(), 1e-9);
+    }
+
+    @Test
+    public void trimmedMeanOfFewReadingsIsTheMean() {
+        assertEquals(2, aggregator(1, 2, 3).trimmedMean(), 1e-9);
+    }
+
+    @Test
+    public void minAndMaxFollowEveryReading() {
+        WindowAggregator window = aggregator(3, -2, 7);
+
+        assertEquals(-2, window.min(), 0);
+        assertEquals(7, window.max(), 0);
+    }
+
+    @Test
+    public void fullWindowIgnoresFurtherReadings() {
+        WindowAggregator window = new WindowAggregator(2);
+        window.add(1);
+        window.add(2);
+        window.add(100);
+
+        assertTrue(window.isFull());
+        assertEquals(2, window.count());
+        assertEquals(1.5, window.mean(), 0);
+    }
+
+    @Test
+    public void resetEmptiesTheWindow() {
+        WindowAggregator window = aggregator(1, 2);
+        window.reset();
+
+        assertEquals(0, window.count());
+        assertFalse(window.isFull());
+        assertTrue(Double.isNaN(window.aggregate(WindowAggregator.Aggregate.MEDIAN)));
+    }
+
+    @Test
+    public void aggregateSelectsTheStatistic() {
+        WindowAggregator window = aggregator(1, 2, 9);
+
+        assertEquals(2, window.aggregate(WindowAggregator.Aggregate.MEDIAN), 0);
+        assertEquals(4, window.aggregate(WindowAggregator.Aggregate.MEAN), 0);
+    }
+
+    private static WindowAggregator aggregator(double... readings) {
+        WindowAggregator window = new WindowAggregator(readings.length);
+        for (double reading : readings) {
+            window.add(reading);
+        }
+        return window;
+    }
+
+}
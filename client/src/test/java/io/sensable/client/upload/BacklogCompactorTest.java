@@ -0,0 +1,167 @@
+package io.sensable.client.upload;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import io.sensable.client.BuildConfig;
+import io.sensable.client.settings.Config;
+import io.sensable.client.sqlite.OutboundSamplesTable;
+import io.sensable.client.sqlite.SensableDatabaseHelper;
+import io.sensable.model.Sample;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@org.robolectric.annotation.Config(constants = BuildConfig.class, sdk = 19)
+public class BacklogCompactorTest {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    private SQLiteDatabase database;
+    private OutboundQueue outboundQueue;
+
+    @Before
+    public void setUp() {
+        database = SensableDatabaseHelper.getHelper(RuntimeEnvironment.application).getWritableDatabase();
+        database.delete(OutboundSamplesTable.NAME, null, null);
+        outboundQueue = new OutboundQueue(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void youngSmallQueueIsLeftAlone() {
+        outboundQueue.enqueue("sensor", "a", sample(0, 1, null, null, null));
+        outboundQueue.enqueue("sensor", "b", sample(1000, 2, null, null, null));
+
+        assertEquals(0, new BacklogCompactor(RuntimeEnvironment.application).compact());
+        assertEquals(2, outboundQueue.size());
+    }
+
+    @Test
+    public void rollupWeighsEverySampleByItsCount() {
+        outboundQueue.enqueue("sensor", "window", sample(0, 2, 1.0, 4.0, 3));
+        outboundQueue.enqueue("sensor", "single", sample(1000, 6, null, null, null));
+        age(System.currentTimeMillis() - 2 * DAY_MILLIS);
+        // The age limit only applies to a queue of some length
+        pad(Config.BACKLOG_COMPACT_MIN_SAMPLES);
+
+        int removed = new BacklogCompactor(RuntimeEnvironment.application).compact();
+
+        assertEquals(1, removed);
+        assertEquals(Config.BACKLOG_COMPACT_MIN_SAMPLES + 1, outboundQueue.size());
+        Sample rollup = outboundQueue.peek(1).get(0).getSample();
+        assertEquals(0, rollup.getTimestamp());
+        assertEquals(3, rollup.getValue(), 1e-9);
+        assertEquals(1, rollup.getMin(), 0);
+        assertEquals(6, rollup.getMax(), 0);
+        assertEquals(4, (int) rollup.getCount());
+    }
+
+    @Test
+    public void bucketTakingInLateSamplesGetsANewKey() {
+        outboundQueue.enqueue("sensor", "a", sample(0, 1, null, null, null));
+        outboundQueue.enqueue("sensor", "b", sample(1000, 2, null, null, null));
+        age(System.currentTimeMillis() - 2 * DAY_MILLIS);
+        pad(Config.BACKLOG_COMPACT_MIN_SAMPLES);
+        new BacklogCompactor(RuntimeEnvironment.application).compact();
+        String first = outboundQueue.peek(1).get(0).getIdempotencyKey();
+
+        // A late sample of the same bucket, e.g. after the first rollup was uploaded
+        outboundQueue.enqueue("sensor", "late", sample(500, 3, null, null, null));
+        age(System.currentTimeMillis() - 2 * DAY_MILLIS);
+        new BacklogCompactor(RuntimeEnvironment.application).compact();
+        OutboundSample second = outboundQueue.peek(1).get(0);
+
+        assertEquals(3, (int) second.getSample().getCount());
+        assertFalse(first.equals(second.getIdempotencyKey()));
+    }
+
+    @Test
+    public void oldButShortQueueIsLeftAlone() {
+        outboundQueue.enqueue("sensor", "a", sample(0, 1, null, null, null));
+        outboundQueue.enqueue("sensor", "b", sample(1000, 2, null, null, null));
+        age(System.currentTimeMillis() - 2 * DAY_MILLIS);
+
+        assertEquals(0, new BacklogCompactor(RuntimeEnvironment.application).compact());
+        assertEquals(2, outboundQueue.size());
+    }
+
+    @Test
+    public void attemptedSamplesAreNeverRolledUp() {
+        outboundQueue.enqueue("sensor", "a", sample(0, 1, null, null, null));
+        outboundQueue.enqueue("sensor", "b", sample(1000, 2, null, null, null));
+        outboundQueue.markAttempted(Arrays.asList("a"), new SocketTimeoutException());
+        age(System.currentTimeMillis() - 2 * DAY_MILLIS);
+        pad(Config.BACKLOG_COMPACT_MIN_SAMPLES);
+
+        assertEquals(0, new BacklogCompactor(RuntimeEnvironment.application).compact());
+        assertEquals(Config.BACKLOG_COMPACT_MIN_SAMPLES + 2, outboundQueue.size());
+    }
+
+    @Test
+    public void bucketsDoubleUntilTheQueueFits() {
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < 6000; i++) {
+                outboundQueue.enqueue("sensor", "sample-" + i, sample(i * HOUR_MILLIS, i, null, null, null));
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        age(System.currentTimeMillis() - 2 * HOUR_MILLIS);
+
+        int removed = new BacklogCompactor(RuntimeEnvironment.application).compact();
+
+        // Hourly buckets hold one sample each, two-hour buckets halve the compacted part
+        assertEquals(1750, removed);
+        assertEquals(4250, outboundQueue.size());
+        Sample rollup = outboundQueue.peek(1).get(0).getSample();
+        assertEquals(2, (int) rollup.getCount());
+        assertEquals(0.5, rollup.getValue(), 1e-9);
+    }
+
+    /**
+     * queues fresh samples of another sensable, which are too young to be compacted.
+     */
+    private void pad(int count) {
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                outboundQueue.enqueue("padding", "padding-" + i, sample(i, i, null, null, null));
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * backdates the samples of the test sensable, the padding stays fresh.
+     */
+    private void age(long enqueuedAt) {
+        ContentValues values = new ContentValues();
+        values.put(OutboundSamplesTable.COLUMN_ENQUEUED_AT, enqueuedAt);
+        database.update(OutboundSamplesTable.NAME, values, OutboundSamplesTable.COLUMN_SENSOR_ID + "=?",
+                new String[]{"sensor"});
+    }
+
+    private static Sample sample(long timestamp, double value, Double min, Double max, Integer count) {
+        Sample sample = new Sample();
+        sample.setTimestamp(timestamp);
+        sample.setValue(value);
+        sample.setMin(min);
+        sample.setMax(max);
+        sample.setCount(count);
+        return sample;
+    }
+
+}
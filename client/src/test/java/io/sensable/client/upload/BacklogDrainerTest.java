@@ -0,0 +1,143 @@
+package io.sensable.client.upload;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import io.sensable.SensableService;
+import io.sensable.client.BuildConfig;
+import io.sensable.client.sqlite.AcknowledgedUploadsTable;
+import io.sensable.client.sqlite.OutboundSamplesTable;
+import io.sensable.client.sqlite.SensableDatabaseHelper;
+import io.sensable.model.Sample;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import retrofit.RestAdapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 19)
+public class BacklogDrainerTest {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    private MockWebServer server;
+    private SensableService service;
+    private OutboundQueue outboundQueue;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.play();
+        service = new RestAdapter.Builder()
+                .setEndpoint(server.getUrl("/").toString())
+                .build()
+                .create(SensableService.class);
+        SQLiteDatabase database = SensableDatabaseHelper.getHelper(RuntimeEnvironment.application).getWritableDatabase();
+        database.delete(OutboundSamplesTable.NAME, null, null);
+        database.delete(AcknowledgedUploadsTable.NAME, null, null);
+        outboundQueue = new OutboundQueue(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void meteredDrainHoldsBackDeferredSamplesThatAreNotDue() throws Exception {
+        long now = System.currentTimeMillis();
+        enqueueAged("immediate", 0);
+        enqueueAged("deferred", now + HOUR_MILLIS);
+        server.enqueue(new MockResponse().setBody("{\"message\":\"ok\"}"));
+
+        int uploaded = drainer(new FakeDeviceConditions().metered(true).charging(false)).drain();
+
+        assertEquals(1, uploaded);
+        assertEquals(1, outboundQueue.size());
+        String body = server.takeRequest().getUtf8Body();
+        assertTrue(body.contains("immediate"));
+        assertFalse(body.contains("deferred"));
+    }
+
+    @Test
+    public void chargingDrainSendsDeferredSamplesEarly() throws Exception {
+        long now = System.currentTimeMillis();
+        enqueueAged("immediate", 0);
+        enqueueAged("deferred", now + HOUR_MILLIS);
+        server.enqueue(new MockResponse().setBody("{\"message\":\"ok\"}"));
+
+        int uploaded = drainer(new FakeDeviceConditions().metered(true).charging(true)).drain();
+
+        assertEquals(2, uploaded);
+        assertEquals(0, outboundQueue.size());
+    }
+
+    @Test
+    public void staleDeferredSamplesAreSentWhileMetered() throws Exception {
+        long now = System.currentTimeMillis();
+        enqueueAged("deferred", now - 1);
+        server.enqueue(new MockResponse().setBody("{\"message\":\"ok\"}"));
+
+        int uploaded = drainer(new FakeDeviceConditions().metered(true).charging(false)).drain();
+
+        assertEquals(1, uploaded);
+        assertEquals(0, outboundQueue.size());
+    }
+
+    @Test
+    public void failedChunkStaysQueued() throws Exception {
+        enqueueAged("immediate", 0);
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        int uploaded = drainer(new FakeDeviceConditions().metered(false)).drain();
+
+        assertEquals(0, uploaded);
+        assertEquals(1, outboundQueue.size());
+    }
+
+    @Test
+    public void acknowledgedSamplesAreDroppedAndUploadsRecorded() throws Exception {
+        UploadLedger uploadLedger = new UploadLedger(RuntimeEnvironment.application);
+        enqueueAged("delivered", 0);
+        enqueueAged("pending", 0);
+        uploadLedger.acknowledge("delivered");
+        server.enqueue(new MockResponse().setBody("{\"message\":\"ok\"}"));
+
+        int uploaded = drainer(new FakeDeviceConditions().metered(false)).drain();
+
+        assertEquals(1, uploaded);
+        assertEquals(0, outboundQueue.size());
+        assertFalse(server.takeRequest().getUtf8Body().contains("delivered"));
+        assertTrue(uploadLedger.isAcknowledged("pending"));
+    }
+
+    private BacklogDrainer drainer(DeviceConditions conditions) {
+        return new BacklogDrainer(RuntimeEnvironment.application, conditions, service);
+    }
+
+    /**
+     * queues a sample that was enqueued long enough ago that the drainer does not take
+     * it for one still in flight.
+     */
+    private void enqueueAged(String idempotencyKey, long flushBy) {
+        Sample sample = new Sample();
+        sample.setTimestamp(System.currentTimeMillis());
+        sample.setValue(1);
+        outboundQueue.enqueue("sensor", idempotencyKey, sample, flushBy);
+        ContentValues values = new ContentValues();
+        values.put(OutboundSamplesTable.COLUMN_ENQUEUED_AT, System.currentTimeMillis() - HOUR_MILLIS);
+        SensableDatabaseHelper.getHelper(RuntimeEnvironment.application).getWritableDatabase()
+                .update(OutboundSamplesTable.NAME, values, OutboundSamplesTable.COLUMN_IDEMPOTENCY_KEY + "=?",
+                        new String[]{idempotencyKey});
+    }
+
+}
@@ -0,0 +1,60 @@
+package io.sensable.client.upload;
+
+import io.sensable.client.settings.Config;
+import io.sensable.model.ScheduledSensable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredUploadGateTest {
+
+    private static final long NOW = 1000000;
+
+    private final DeferredUploadGate gate = new DeferredUploadGate();
+
+    @Test
+    public void closedOnMeteredNetworkWhileNotCharging() {
+        assertFalse(gate.isOpen(new FakeDeviceConditions().metered(true).charging(false)));
+    }
+
+    @Test
+    public void openOnUnmeteredNetwork() {
+        assertTrue(gate.isOpen(new FakeDeviceConditions().metered(false)));
+    }
+
+    @Test
+    public void openWhileChargingOnMeteredNetwork() {
+        assertTrue(gate.isOpen(new FakeDeviceConditions().metered(true).charging(true)));
+    }
+
+    @Test
+    public void closedWhileOffline() {
+        assertFalse(gate.isOpen(new FakeDeviceConditions().connected(false).charging(true)));
+    }
+
+    @Test
+    public void immediateSamplesAreNeverHeldBack() {
+        assertEquals(0, gate.flushBy(sensable(ScheduledSensable.UPLOAD_IMMEDIATE, 0), NOW));
+    }
+
+    @Test
+    public void deferredSamplesUseTheDefaultStaleness() {
+        assertEquals(NOW + Config.DEFERRED_MAX_STALENESS_MILLIS,
+                gate.flushBy(sensable(ScheduledSensable.UPLOAD_DEFERRED, 0), NOW));
+    }
+
+    @Test
+    public void deferredSamplesUseTheirOwnStaleness() {
+        assertEquals(NOW + 1000, gate.flushBy(sensable(ScheduledSensable.UPLOAD_DEFERRED, 1000), NOW));
+    }
+
+    private static ScheduledSensable sensable(int uploadClass, long maxStalenessMillis) {
+        ScheduledSensable scheduledSensable = new ScheduledSensable();
+        scheduledSensable.setUploadClass(uploadClass);
+        scheduledSensable.setMaxStalenessMillis(maxStalenessMillis);
+        return scheduledSensable;
+    }
+
+}
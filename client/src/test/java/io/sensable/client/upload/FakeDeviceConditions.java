@@ -0,0 +1,53 @@
+package io.sensable.client.upload;
+
+/**
+ * is a `DeviceConditions` whose state is set by the test.
+ */
+class FakeDeviceConditions implements DeviceConditions {
+
+    boolean connected = true;
+    boolean metered = false;
+    int signalLevel = SIGNAL_GREAT;
+    boolean charging = false;
+
+    FakeDeviceConditions connected(boolean connected) {
+        this.connected = connected;
+        return this;
+    }
+
+    FakeDeviceConditions metered(boolean metered) {
+        this.metered = metered;
+        return this;
+    }
+
+    FakeDeviceConditions signalLevel(int signalLevel) {
+        this.signalLevel = signalLevel;
+        return this;
+    }
+
+    FakeDeviceConditions charging(boolean charging) {
+        this.charging = charging;
+        return this;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public boolean isMetered() {
+        return metered;
+    }
+
+    @Override
+    public int getSignalLevel() {
+        return signalLevel;
+    }
+
+    @Override
+    public boolean isCharging() {
+        return charging;
+    }
+
+}
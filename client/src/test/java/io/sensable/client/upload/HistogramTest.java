@@ -0,0 +1,77 @@
+package io.sensable.client.upload;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        Histogram histogram = new Histogram();
+
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals("0", histogram.encodeBuckets());
+    }
+
+    @Test
+    public void percentilesAreTheUpperBoundOfTheirBucket() {
+        Histogram histogram = upTo(100);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getMean());
+        assertEquals(63, histogram.getPercentile(50));
+        // The top bucket is capped by the largest value seen
+        assertEquals(100, histogram.getPercentile(90));
+        assertEquals(100, histogram.getMax());
+    }
+
+    @Test
+    public void negativeValuesCountAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertEquals(0, histogram.getSum());
+        assertEquals("1", histogram.encodeBuckets());
+    }
+
+    @Test
+    public void hugeValuesLandInTheLastBucket() {
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE / 2);
+
+        assertEquals(Histogram.BUCKETS, histogram.encodeBuckets().split(",").length);
+    }
+
+    @Test
+    public void encodedBucketsRoundTrip() {
+        Histogram histogram = upTo(100);
+        String encoded = histogram.encodeBuckets();
+
+        assertEquals("0,1,2,4,8,16,32,37", encoded);
+        Histogram decoded = Histogram.decode(histogram.getCount(), histogram.getSum(), histogram.getMax(), encoded);
+        assertEquals(encoded, decoded.encodeBuckets());
+        assertEquals(histogram.getPercentile(50), decoded.getPercentile(50));
+        assertEquals(histogram.getMean(), decoded.getMean());
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        Histogram histogram = upTo(10);
+        Histogram copy = new Histogram(histogram);
+        histogram.record(1000);
+
+        assertEquals(10, copy.getCount());
+        assertEquals(10, copy.getMax());
+    }
+
+    private static Histogram upTo(int last) {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= last; value++) {
+            histogram.record(value);
+        }
+        return histogram;
+    }
+
+}
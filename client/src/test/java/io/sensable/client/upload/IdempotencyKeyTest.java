@@ -0,0 +1,55 @@
+package io.sensable.client.upload;
+
+import io.sensable.model.Sample;
+import io.sensable.model.SampleBatch;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class IdempotencyKeyTest {
+
+    @Test
+    public void sampleKeyOnlyDependsOnTheSample() {
+        assertEquals(IdempotencyKey.forSample("s", 1000, 7), IdempotencyKey.forSample("s", 1000, 7));
+        assertFalse(IdempotencyKey.forSample("s", 1000, 7).equals(IdempotencyKey.forSample("s", 1000, 8)));
+    }
+
+    @Test
+    public void hashIsFnv1a() {
+        assertEquals(0xcbf29ce484222325L, IdempotencyKey.hash(""));
+        assertEquals(0xaf63dc4c8601ec8cL, IdempotencyKey.hash("a"));
+    }
+
+    @Test
+    public void rollupKeysDifferPerBucketAndLength() {
+        assertFalse(IdempotencyKey.forRollup("s", 0, 1000, 1, 2).equals(IdempotencyKey.forRollup("s", 1000, 1000, 1, 2)));
+        assertFalse(IdempotencyKey.forRollup("s", 0, 1000, 1, 2).equals(IdempotencyKey.forRollup("s", 0, 2000, 1, 2)));
+        assertFalse(IdempotencyKey.forRollup("s", 0, 1000, 1, 2).equals(IdempotencyKey.forSample("s", 0, 1000)));
+    }
+
+    @Test
+    public void rollupKeysDependOnTheSamplesReplaced() {
+        assertEquals(IdempotencyKey.forRollup("s", 0, 1000, 1, 2), IdempotencyKey.forRollup("s", 0, 1000, 1, 2));
+        assertFalse(IdempotencyKey.forRollup("s", 0, 1000, 1, 2).equals(IdempotencyKey.forRollup("s", 0, 1000, 1, 3)));
+        assertFalse(IdempotencyKey.forRollup("s", 0, 1000, 1, 2).equals(IdempotencyKey.forRollup("s", 0, 1000, 5, 2)));
+    }
+
+    @Test
+    public void batchKeyDependsOnItsEntriesAndTheirOrder() {
+        SampleBatch first = batch("a", "b");
+
+        assertEquals(IdempotencyKey.forBatch(first), IdempotencyKey.forBatch(batch("a", "b")));
+        assertFalse(IdempotencyKey.forBatch(first).equals(IdempotencyKey.forBatch(batch("b", "a"))));
+        assertFalse(IdempotencyKey.forBatch(first).equals(IdempotencyKey.forBatch(batch("a"))));
+    }
+
+    private static SampleBatch batch(String... keys) {
+        SampleBatch sampleBatch = new SampleBatch();
+        for (String key : keys) {
+            sampleBatch.add(new SampleBatch.Entry("s", key, new Sample()));
+        }
+        return sampleBatch;
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.sensable.client.upload;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UploadPolicyTest {
+
+    private static final long MINUTE_MILLIS = 60 * 1000;
+
+    private final UploadPolicy policy = new UploadPolicy();
+
+    @Test
+    public void unmeteredFlushesModerateBatchesQuickly() {
+        UploadPlan plan = policy.plan(new FakeDeviceConditions().metered(false));
+
+        assertEquals(UploadPolicy.UNMETERED_BATCH_SIZE, plan.getBatchSize());
+        assertEquals(5 * MINUTE_MILLIS, plan.getFlushIntervalMillis());
+        assertEquals(6, plan.getCompressionLevel());
+    }
+
+    @Test
+    public void meteredHoldsBackLargerBatches() {
+        UploadPlan plan = policy.plan(new FakeDeviceConditions().metered(true));
+
+        assertEquals(UploadPolicy.METERED_BATCH_SIZE, plan.getBatchSize());
+        assertEquals(15 * MINUTE_MILLIS, plan.getFlushIntervalMillis());
+        assertEquals(9, plan.getCompressionLevel());
+    }
+
+    @Test
+    public void weakSignalStretchesTheInterval() {
+        UploadPlan plan = policy.plan(new FakeDeviceConditions().metered(true).signalLevel(1));
+
+        assertEquals(UploadPolicy.MAX_BATCH_SIZE, plan.getBatchSize());
+        assertEquals(30 * MINUTE_MILLIS, plan.getFlushIntervalMillis());
+    }
+
+    @Test
+    public void chargingHalvesTheInterval() {
+        UploadPlan plan = policy.plan(new FakeDeviceConditions().metered(true).charging(true));
+
+        assertEquals(15 * MINUTE_MILLIS / 2, plan.getFlushIntervalMillis());
+    }
+
+    @Test
+    public void offlineCollectsTheLargestBatches() {
+        UploadPlan plan = policy.plan(new FakeDeviceConditions().connected(false));
+
+        assertEquals(UploadPolicy.MAX_BATCH_SIZE, plan.getBatchSize());
+        assertEquals(60 * MINUTE_MILLIS, plan.getFlushIntervalMillis());
+    }
+
+    @Test
+    public void flushIsDueOnceTheNextChanceIsTooLate() {
+        UploadPlan plan = new UploadPlan(100, 15 * MINUTE_MILLIS, 9);
+
+        assertFalse(plan.isFlushDue(10, 0, 10 * MINUTE_MILLIS));
+        assertTrue(plan.isFlushDue(10, 0, 15 * MINUTE_MILLIS));
+        assertTrue(plan.isFlushDue(10, 0, 0));
+    }
+
+    @Test
+    public void flushIsDueOnceTheBatchIsFull() {
+        UploadPlan plan = new UploadPlan(100, 15 * MINUTE_MILLIS, 9);
+
+        assertTrue(plan.isFlushDue(100, 0, MINUTE_MILLIS));
+    }
+
+}
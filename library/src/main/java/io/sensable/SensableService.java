@@ -4,8 +4,10 @@ import io.sensable.model.*;
 import retrofit.Callback;
 import retrofit.http.Body;
 import retrofit.http.GET;
+import retrofit.http.Header;
 import retrofit.http.POST;
 import retrofit.http.Path;
+import retrofit.http.Query;
 
 import java.util.List;
 
@@ -28,6 +30,12 @@ public interface SensableService {
     @GET("/sensable")
     List<Sensable> listSensables();
 
+    @GET("/sensable")
+    void listSensables(@Query("page") int page, @Query("limit") int limit, Callback<List<Sensable>> cb);
+
+    @GET("/sensable")
+    List<Sensable> listSensables(@Query("page") int page, @Query("limit") int limit);
+
     @POST("/sensable")
     void createSensable(@Body Sensable sensable, Callback<SampleResponse> cb);
 
@@ -40,12 +48,54 @@ public interface SensableService {
     @POST("/sensed/{id}")
     SampleResponse saveSample(@Path("id") String id, @Body SampleSender sampleSender);
 
+    @POST("/sensed/{id}")
+    void saveSample(@Path("id") String id, @Header("Idempotency-Key") String idempotencyKey, @Body SampleSender sampleSender, Callback<SampleResponse> cb);
+
+    @POST("/sensed/{id}")
+    SampleResponse saveSample(@Path("id") String id, @Header("Idempotency-Key") String idempotencyKey, @Body SampleSender sampleSender);
+
+    @POST("/sensed/batch")
+    void saveSamples(@Body SampleBatch sampleBatch, Callback<SampleResponse> cb);
+
+    @POST("/sensed/batch")
+    SampleResponse saveSamples(@Body SampleBatch sampleBatch);
+
+    @POST("/sensed/batch")
+    void saveSamples(@Header("Idempotency-Key") String idempotencyKey, @Body SampleBatch sampleBatch, Callback<SampleResponse> cb);
+
+    @POST("/sensed/batch")
+    SampleResponse saveSamples(@Header("Idempotency-Key") String idempotencyKey, @Body SampleBatch sampleBatch);
+
     @GET("/sensed/{id}")
     void getSensorData(@Path("id") String id, Callback<Sensable> cb);
 
     @GET("/sensed/{id}")
     Sensable getSensorData(@Path("id") String id);
 
+    @GET("/sensed/{id}")
+    void getSensorData(@Path("id") String id, @Query("since") long since, Callback<Sensable> cb);
+
+    @GET("/sensed/{id}")
+    Sensable getSensorData(@Path("id") String id, @Query("since") long since);
+
+    @GET("/sensed/{id}")
+    void getSensorData(@Path("id") String id, @Query("from") long from, @Query("to") long to, Callback<Sensable> cb);
+
+    @GET("/sensed/{id}")
+    Sensable getSensorData(@Path("id") String id, @Query("from") long from, @Query("to") long to);
+
+    @GET("/sensed/{id}")
+    void getSensorData(@Path("id") String id, @Query("from") long from, @Query("to") long to, @Query("limit") int limit, Callback<Sensable> cb);
+
+    @GET("/sensed/{id}")
+    Sensable getSensorData(@Path("id") String id, @Query("from") long from, @Query("to") long to, @Query("limit") int limit);
+
+    @GET("/updates")
+    void getUpdates(@Query("cursors") String cursors, Callback<List<Sensable>> cb);
+
+    @GET("/updates")
+    List<Sensable> getUpdates(@Query("cursors") String cursors);
+
     @POST("/login")
     void login(@Body UserLogin userLogin, Callback<User> cb);
 
@@ -21,6 +21,9 @@ public class Sample implements Parcelable {
     private long timestamp;
     private double value;
     private double[] location;
+    private Double min;             // Lowest reading of an aggregated sample, if sent
+    private Double max;             // Highest reading of an aggregated sample, if sent
+    private Integer count;          // Number of readings of a rollup, if sent
 
     public Sample() {
     }
@@ -29,6 +32,15 @@ public class Sample implements Parcelable {
         try {
             this.timestamp = json.getLong("timestamp");
             this.value = json.getDouble("value");
+            if (json.has("min")) {
+                this.min = json.getDouble("min");
+            }
+            if (json.has("max")) {
+                this.max = json.getDouble("max");
+            }
+            if (json.has("count")) {
+                this.count = json.getInt("count");
+            }
 
             JSONArray jsonArray = json.getJSONArray("location");
             this.location = new double[]{jsonArray.getDouble(0), jsonArray.getDouble(1)};
@@ -103,6 +115,9 @@ public class Sample implements Parcelable {
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeLong(timestamp);
         dest.writeDouble(value);
+        dest.writeValue(min);
+        dest.writeValue(max);
+        dest.writeValue(count);
     }
 
     public static final Parcelable.Creator<Sample> CREATOR
@@ -155,6 +170,9 @@ public class Sample implements Parcelable {
     private Sample(Parcel in) {
         timestamp = in.readLong();
         value = in.readDouble();
+        min = (Double) in.readValue(Double.class.getClassLoader());
+        max = (Double) in.readValue(Double.class.getClassLoader());
+        count = (Integer) in.readValue(Integer.class.getClassLoader());
     }
 
     /**
@@ -183,6 +201,15 @@ public class Sample implements Parcelable {
         JSONObject json = null;
         try {
             json = new JSONObject("{\"timestamp\": " + this.getTimestamp() + ", \"value\": " + this.getValue() + "}");
+            if (min != null) {
+                json.put("min", min.doubleValue());
+            }
+            if (max != null) {
+                json.put("max", max.doubleValue());
+            }
+            if (count != null) {
+                json.put("count", count.intValue());
+            }
         } catch (JSONException e) {
             e.printStackTrace();
         }
@@ -211,4 +238,43 @@ public class Sample implements Parcelable {
     public void setLocation(double[] location) {
         this.location = location;
     }
-}
\ No newline at end of file
+
+    /**
+     * returns the lowest reading of the window this sample aggregates.
+     *
+     * @returns the minimum, or null for a single reading.
+     */
+    public Double getMin() {
+        return min;
+    }
+
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    /**
+     * returns the highest reading of the window this sample aggregates.
+     *
+     * @returns the maximum, or null for a single reading.
+     */
+    public Double getMax() {
+        return max;
+    }
+
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    /**
+     * returns the number of readings a rollup of the upload backlog stands for.
+     *
+     * @returns the count, or null for a sample that is not a rollup.
+     */
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
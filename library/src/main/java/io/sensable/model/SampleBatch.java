@@ -0,0 +1,63 @@
+package io.sensable.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * is the body of a batched upload: the samples of several sensables sent in a single
+ * request, each with its own idempotency key so the server can acknowledge or
+ * deduplicate them one by one.
+ */
+public class SampleBatch {
+    private String accessToken;
+    private List<Entry> samples = new ArrayList<Entry>();
+
+    /**
+     * is a single sample of a batch together with the sensable it belongs to.
+     */
+    public static class Entry {
+        private String sensorid;
+        private String idempotencyKey;
+        private Sample sample;
+
+        public Entry(String sensorid, String idempotencyKey, Sample sample) {
+            this.sensorid = sensorid;
+            this.idempotencyKey = idempotencyKey;
+            this.sample = sample;
+        }
+
+        public String getSensorid() {
+            return sensorid;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public Sample getSample() {
+            return sample;
+        }
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public List<Entry> getSamples() {
+        return samples;
+    }
+
+    /**
+     * adds a sample to the batch.
+     *
+     * @param entry sample with its sensable and idempotency key.
+     */
+    public void add(Entry entry) {
+        samples.add(entry);
+    }
+
+}
@@ -15,6 +15,11 @@ import org.json.JSONObject;
  * a method for generating a JSON string representation of the sample data.
  */
 public class ScheduledSensable {
+
+    // Upload classes
+    public static final int UPLOAD_IMMEDIATE = 0;   // Uploaded with the tick it was taken in
+    public static final int UPLOAD_DEFERRED = 1;    // Held until charging or unmetered, or until stale
+
     private int id;                 // Internal DB ID
     private String sensorid;        // Sensables ID
     private String name;            // Sensables name
@@ -25,6 +30,17 @@ public class ScheduledSensable {
     private Sample sample;          // Latest Sample
     private boolean privateSensor;
     private String accessToken;
+    private long sequence;          // Number of samples taken, part of their idempotency keys
+    private double deadbandAbsolute; // Readings closer than this to the last sent value are skipped
+    private double deadbandRelative; // Same, as a fraction of the last sent value
+    private long heartbeatMillis;   // A reading is sent at least this often, 0 for no heartbeat
+    private double lastSentValue;
+    private long lastSentAt;        // 0 until the first reading has been sent
+    private int uploadClass;        // UPLOAD_IMMEDIATE or UPLOAD_DEFERRED
+    private long maxStalenessMillis; // Longest a deferred sample is held back, 0 for the default
+    private long intervalMillis;    // Time between samples, 0 for the default
+    private long nextDueAt;         // When the next sample is due, 0 for right away
+    private long toleranceMillis;   // How far a sample may move from its due time, 0 for the default
 
     // Remove when location is part of sample
     private double[] location;
@@ -198,6 +214,153 @@ public class ScheduledSensable {
         this.privateSensor = privateSensor;
     }
 
+    /**
+     * returns the number of samples taken by this sensable so far.
+     *
+     * @returns the sequence number of the latest sample.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * sets the number of samples taken by this sensable so far.
+     *
+     * @param sequence sequence number of the latest sample.
+     */
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * returns the absolute deadband: readings that differ from the last sent value by
+     * no more than this are not uploaded.
+     *
+     * @returns the absolute threshold, 0 if disabled.
+     */
+    public double getDeadbandAbsolute() {
+        return deadbandAbsolute;
+    }
+
+    public void setDeadbandAbsolute(double deadbandAbsolute) {
+        this.deadbandAbsolute = deadbandAbsolute;
+    }
+
+    /**
+     * returns the relative deadband: readings that differ from the last sent value by
+     * no more than this fraction of it are not uploaded.
+     *
+     * @returns the relative threshold, e.g. 0.01 for 1%, 0 if disabled.
+     */
+    public double getDeadbandRelative() {
+        return deadbandRelative;
+    }
+
+    public void setDeadbandRelative(double deadbandRelative) {
+        this.deadbandRelative = deadbandRelative;
+    }
+
+    /**
+     * returns the longest time a reading may be held back by the deadband.
+     *
+     * @returns the heartbeat interval in milliseconds, 0 for no heartbeat.
+     */
+    public long getHeartbeatMillis() {
+        return heartbeatMillis;
+    }
+
+    public void setHeartbeatMillis(long heartbeatMillis) {
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    public double getLastSentValue() {
+        return lastSentValue;
+    }
+
+    public void setLastSentValue(double lastSentValue) {
+        this.lastSentValue = lastSentValue;
+    }
+
+    /**
+     * returns when the last reading was sent.
+     *
+     * @returns the time in milliseconds since the epoch, 0 if nothing was sent yet.
+     */
+    public long getLastSentAt() {
+        return lastSentAt;
+    }
+
+    public void setLastSentAt(long lastSentAt) {
+        this.lastSentAt = lastSentAt;
+    }
+
+    /**
+     * returns how the samples of this sensable are uploaded.
+     *
+     * @returns `UPLOAD_IMMEDIATE` or `UPLOAD_DEFERRED`.
+     */
+    public int getUploadClass() {
+        return uploadClass;
+    }
+
+    public void setUploadClass(int uploadClass) {
+        this.uploadClass = uploadClass;
+    }
+
+    /**
+     * returns the longest time a deferred sample waits for the device to charge or reach
+     * an unmetered network before it is uploaded anyway.
+     *
+     * @returns the staleness bound in milliseconds, 0 for the default.
+     */
+    public long getMaxStalenessMillis() {
+        return maxStalenessMillis;
+    }
+
+    public void setMaxStalenessMillis(long maxStalenessMillis) {
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    /**
+     * returns the time between two samples of this sensable.
+     *
+     * @returns the sampling interval in milliseconds, 0 for the default.
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * returns when the next sample of this sensable is due.
+     *
+     * @returns the time in milliseconds since the epoch, 0 if it is due right away.
+     */
+    public long getNextDueAt() {
+        return nextDueAt;
+    }
+
+    public void setNextDueAt(long nextDueAt) {
+        this.nextDueAt = nextDueAt;
+    }
+
+    /**
+     * returns how far a sample may be taken before or after its due time, so it can share
+     * a wake-up with other sensables.
+     *
+     * @returns the tolerance in milliseconds, 0 for the default.
+     */
+    public long getToleranceMillis() {
+        return toleranceMillis;
+    }
+
+    public void setToleranceMillis(long toleranceMillis) {
+        this.toleranceMillis = toleranceMillis;
+    }
+
     /**
      * retrieves a pre-defined access token from storage and returns it as a string.
      * 
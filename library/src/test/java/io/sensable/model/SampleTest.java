@@ -0,0 +1,83 @@
+package io.sensable.model;
+
+import android.os.Parcel;
+import io.sensable.BuildConfig;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 19)
+public class SampleTest {
+
+    @Test
+    public void parcelKeepsMinAndMax() {
+        Sample sample = aggregated();
+        Parcel parcel = Parcel.obtain();
+        sample.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        Sample copy = Sample.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertEquals(1000, copy.getTimestamp());
+        assertEquals(2.5, copy.getValue(), 0);
+        assertEquals(1.0, copy.getMin(), 0);
+        assertEquals(4.0, copy.getMax(), 0);
+    }
+
+    @Test
+    public void jsonKeepsMinAndMax() {
+        Sample copy = new Sample(aggregated().toJson());
+
+        assertEquals(1.0, copy.getMin(), 0);
+        assertEquals(4.0, copy.getMax(), 0);
+    }
+
+    @Test
+    public void rollupCountSurvivesParcelAndJson() {
+        Sample sample = aggregated();
+        sample.setCount(7);
+        Parcel parcel = Parcel.obtain();
+        sample.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        Sample copy = Sample.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertEquals(7, (int) copy.getCount());
+        assertEquals(7, (int) new Sample(sample.toJson()).getCount());
+    }
+
+    @Test
+    public void singleReadingsHaveNoMinOrMax() {
+        Sample sample = new Sample();
+        sample.setTimestamp(1000);
+        sample.setValue(2.5);
+        Parcel parcel = Parcel.obtain();
+        sample.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        Sample copy = Sample.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertNull(copy.getMin());
+        assertNull(copy.getMax());
+        assertNull(copy.getCount());
+        assertNull(new Sample(sample.toJson()).getMin());
+    }
+
+    private static Sample aggregated() {
+        Sample sample = new Sample();
+        sample.setTimestamp(1000);
+        sample.setValue(2.5);
+        sample.setMin(1.0);
+        sample.setMax(4.0);
+        return sample;
+    }
+
+}